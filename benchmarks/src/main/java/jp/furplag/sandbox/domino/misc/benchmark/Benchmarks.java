@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * runs all benchmarks, and compares the throughput against the baseline .
+ * the comparison fails if the baseline has no score, so that an unrecorded baseline never passes silently .
+ * <ul>
+ * <li>benchmark.baseline: path of the baseline ( default: baseline.properties )</li>
+ * <li>benchmark.tolerance: the ratio of regression which allowed ( default: 0.1 )</li>
+ * <li>benchmark.update: overwrites the baseline with the result, if true</li>
+ * </ul>
+ *
+ * @author furplag
+ *
+ */
+public final class Benchmarks {
+
+  private Benchmarks() {}
+
+  public static void main(String[] args) throws IOException, RunnerException {
+    final Path baselinePath = Paths.get(System.getProperty("benchmark.baseline", "baseline.properties"));
+    final double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.1"));
+    // @formatter:off
+    final Options options = new OptionsBuilder()
+      .include(Benchmarks.class.getPackageName() + ".*Benchmark")
+      .addProfiler(GCProfiler.class)
+      .resultFormat(ResultFormatType.JSON)
+      .result("target/jmh-result.json")
+      .build();
+    // @formatter:on
+    final Map<String, Double> scores = scores(new Runner(options).run());
+    if (Boolean.getBoolean("benchmark.update")) {
+      update(baselinePath, scores);
+
+      return;
+    }
+    final Properties baseline = new Properties();
+    if (Files.exists(baselinePath)) {
+      try (Reader reader = Files.newBufferedReader(baselinePath)) {
+        baseline.load(reader);
+      }
+    }
+    if (baseline.stringPropertyNames().stream().allMatch((name) -> baseline.getProperty(name).isBlank())) {
+      System.err.printf("the baseline \"%s\" has no score, record it with -Dbenchmark.update=true on the reference machine .%n", baselinePath);
+      System.exit(2);
+    }
+    int regressions = 0;
+    for (Map.Entry<String, Double> score : scores.entrySet()) {
+      final String expect = baseline.getProperty(score.getKey());
+      if (expect == null || expect.isBlank()) {
+        System.out.printf("%s: %.3f ops/s ( no baseline ) .%n", score.getKey(), score.getValue());
+        continue;
+      }
+      final double threshold = Double.parseDouble(expect) * (1d - tolerance);
+      final boolean regressed = score.getValue() < threshold;
+      System.out.printf("%s: %.3f ops/s ( baseline %s, threshold %.3f ) %s .%n", score.getKey(), score.getValue(), expect, threshold, regressed ? "REGRESSED" : "ok");
+      regressions += regressed ? 1 : 0;
+    }
+    if (regressions > 0) {
+      System.err.printf("%d benchmark(s) regressed over %.1f%% .%n", regressions, tolerance * 100d);
+      System.exit(1);
+    }
+  }
+
+  /**
+   * returns the primary score of each benchmark .
+   *
+   * @param results the result of benchmarks
+   * @return the score of each benchmark, keyed by the name of benchmark
+   */
+  private static Map<String, Double> scores(final Collection<RunResult> results) {
+    final Map<String, Double> scores = new TreeMap<>();
+    for (RunResult result : results) {
+      final String name = result.getParams().getBenchmark();
+      scores.put(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1), result.getPrimaryResult().getScore());
+    }
+
+    return scores;
+  }
+
+  /**
+   * overwrites the baseline with the result .
+   *
+   * @param baselinePath path of the baseline
+   * @param scores the score of each benchmark
+   * @throws IOException failed to write
+   */
+  private static void update(final Path baselinePath, final Map<String, Double> scores) throws IOException {
+    final Properties baseline = new Properties();
+    scores.forEach((k, v) -> baseline.setProperty(k, String.valueOf(v)));
+    try (Writer writer = Files.newBufferedWriter(baselinePath)) {
+      // @formatter:off
+      baseline.store(writer, String.format("throughput ( ops/s ) per benchmark, recorded on %s %s ( %s, %d processors ) with %s %s ."
+        , System.getProperty("os.name"), System.getProperty("os.version"), System.getProperty("os.arch"), Runtime.getRuntime().availableProcessors()
+        , System.getProperty("java.vm.name"), System.getProperty("java.version")));
+      // @formatter:on
+    }
+  }
+}
@@ -0,0 +1,505 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import org.seasar.doma.Column;
+import org.seasar.doma.Domain;
+import org.seasar.doma.Embeddable;
+import org.seasar.doma.Entity;
+import org.seasar.doma.Id;
+import org.seasar.doma.Table;
+import org.seasar.doma.Transient;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.dialect.H2Dialect;
+import org.seasar.doma.jdbc.entity.NamingType;
+import org.seasar.doma.jdbc.tx.LocalTransactionDataSource;
+import jp.furplag.sandbox.domino.misc.origin.Conditionally;
+import jp.furplag.sandbox.domino.misc.origin.Sequentially;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+/**
+ * entities for benchmarks, mirrors the fixtures in tests .
+ *
+ * @author furplag
+ *
+ */
+public final class Fixtures {
+
+  /**
+   * {@link Config} which never connects to database .
+   */
+  public static final class BenchConfig implements Config {
+
+    private static final BenchConfig INSTANCE = new BenchConfig();
+
+    private final Dialect dialect = new H2Dialect();
+
+    private final LocalTransactionDataSource dataSource = new LocalTransactionDataSource("jdbc:h2:mem:benchmarks", "sa", "");
+
+    private BenchConfig() {}
+
+    public static BenchConfig singleton() {
+      return INSTANCE;
+    }
+
+    @Override
+    public LocalTransactionDataSource getDataSource() {
+      return dataSource;
+    }
+
+    @Override
+    public Dialect getDialect() {
+      return dialect;
+    }
+  }
+
+  /**
+   * a deep hierarchy of entities .
+   */
+  @Entity
+  public static class Zero implements Conditionally {
+
+    private static final long serialVersionUID = 1L;
+
+    @Transient
+    private final Map<String, Where<?>> wheres = new LinkedHashMap<>();
+
+    @Transient
+    private final Queue<Sequentially.OrderBy> order = new ArrayDeque<>();
+
+    @Override
+    public Map<String, Where<?>> getWheres() {
+      return wheres;
+    }
+
+    @Override
+    public Queue<Sequentially.OrderBy> getOrder() {
+      return order;
+    }
+
+    @Entity(naming = NamingType.UPPER_CASE)
+    public static class One extends Zero {
+
+      private static final long serialVersionUID = 1L;
+
+      @Id
+      public long primaryKey;
+
+      @Column(name = "rename_this_field")
+      public int alternate;
+
+      public Toggle toggle = new Toggle("on");
+
+      public Abc abc = new Abc("AAA", "BBB", "CCC");
+
+      @Transient
+      public int ignore;
+
+      @Entity
+      public static class Two extends One {
+
+        private static final long serialVersionUID = 1L;
+
+        @Entity(naming = NamingType.SNAKE_LOWER_CASE)
+        public static class Three extends Two {
+
+          private static final long serialVersionUID = 1L;
+
+          @Entity
+          @Table(name = "")
+          public static class Four extends Three {
+
+            private static final long serialVersionUID = 1L;
+
+            public long alternate;
+
+            @Entity
+            @Table(name = "five_six_se7en")
+            public static class Five extends Four {
+
+              private static final long serialVersionUID = 1L;
+
+              public Abc abc = new Abc("DDD", "EEE", "FFF");
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * a domain .
+   */
+  @Domain(valueType = String.class)
+  public static class Toggle {
+
+    private final String value;
+
+    public Toggle(String value) {
+      this.value = value;
+    }
+
+    public String getValue() {
+      return value;
+    }
+  }
+
+  /**
+   * an embeddable .
+   */
+  @Embeddable
+  public static class Abc {
+
+    @Transient
+    public int ignore;
+
+    public String a;
+
+    public String b;
+
+    @Column(name = "C")
+    public String c;
+
+    public Abc(String a, String b, String c) {
+      this.a = a;
+      this.b = b;
+      this.c = c;
+    }
+  }
+
+  /**
+   * a wide entity which has 60 columns .
+   */
+  @Entity(naming = NamingType.SNAKE_LOWER_CASE)
+  @Table(name = "wide_table")
+  public static class Wide implements Conditionally {
+
+    private static final long serialVersionUID = 1L;
+
+    @Transient
+    private final Map<String, Where<?>> wheres = new LinkedHashMap<>();
+
+    @Transient
+    private final Queue<Sequentially.OrderBy> order = new ArrayDeque<>();
+
+    @Id
+    public long id;
+    public long column001;
+    public int column002;
+    public java.math.BigDecimal column003;
+    public java.time.LocalDate column004;
+    public String column005;
+    public long column006;
+    public int column007;
+    public java.math.BigDecimal column008;
+    public java.time.LocalDate column009;
+    public String column010;
+    public long column011;
+    public int column012;
+    public java.math.BigDecimal column013;
+    public java.time.LocalDate column014;
+    public String column015;
+    public long column016;
+    public int column017;
+    public java.math.BigDecimal column018;
+    public java.time.LocalDate column019;
+    public String column020;
+    public long column021;
+    public int column022;
+    public java.math.BigDecimal column023;
+    public java.time.LocalDate column024;
+    public String column025;
+    public long column026;
+    public int column027;
+    public java.math.BigDecimal column028;
+    public java.time.LocalDate column029;
+    public String column030;
+    public long column031;
+    public int column032;
+    public java.math.BigDecimal column033;
+    public java.time.LocalDate column034;
+    public String column035;
+    public long column036;
+    public int column037;
+    public java.math.BigDecimal column038;
+    public java.time.LocalDate column039;
+    public String column040;
+    public long column041;
+    public int column042;
+    public java.math.BigDecimal column043;
+    public java.time.LocalDate column044;
+    public String column045;
+    public long column046;
+    public int column047;
+    public java.math.BigDecimal column048;
+    public java.time.LocalDate column049;
+    public String column050;
+    public long column051;
+    public int column052;
+    public java.math.BigDecimal column053;
+    public java.time.LocalDate column054;
+    public String column055;
+    public long column056;
+    public int column057;
+    public java.math.BigDecimal column058;
+    public java.time.LocalDate column059;
+
+    @Override
+    public Map<String, Where<?>> getWheres() {
+      return wheres;
+    }
+
+    @Override
+    public Queue<Sequentially.OrderBy> getOrder() {
+      return order;
+    }
+  }
+
+  /**
+   * a wide entity which has 200 columns .
+   */
+  @Entity(naming = NamingType.SNAKE_LOWER_CASE)
+  @Table(name = "wide200_table")
+  public static class Wide200 implements Conditionally {
+
+    private static final long serialVersionUID = 1L;
+
+    @Transient
+    private final Map<String, Where<?>> wheres = new LinkedHashMap<>();
+
+    @Transient
+    private final Queue<Sequentially.OrderBy> order = new ArrayDeque<>();
+
+    @Id
+    public long id;
+    public long column001;
+    public int column002;
+    public java.math.BigDecimal column003;
+    public java.time.LocalDate column004;
+    public String column005;
+    public long column006;
+    public int column007;
+    public java.math.BigDecimal column008;
+    public java.time.LocalDate column009;
+    public String column010;
+    public long column011;
+    public int column012;
+    public java.math.BigDecimal column013;
+    public java.time.LocalDate column014;
+    public String column015;
+    public long column016;
+    public int column017;
+    public java.math.BigDecimal column018;
+    public java.time.LocalDate column019;
+    public String column020;
+    public long column021;
+    public int column022;
+    public java.math.BigDecimal column023;
+    public java.time.LocalDate column024;
+    public String column025;
+    public long column026;
+    public int column027;
+    public java.math.BigDecimal column028;
+    public java.time.LocalDate column029;
+    public String column030;
+    public long column031;
+    public int column032;
+    public java.math.BigDecimal column033;
+    public java.time.LocalDate column034;
+    public String column035;
+    public long column036;
+    public int column037;
+    public java.math.BigDecimal column038;
+    public java.time.LocalDate column039;
+    public String column040;
+    public long column041;
+    public int column042;
+    public java.math.BigDecimal column043;
+    public java.time.LocalDate column044;
+    public String column045;
+    public long column046;
+    public int column047;
+    public java.math.BigDecimal column048;
+    public java.time.LocalDate column049;
+    public String column050;
+    public long column051;
+    public int column052;
+    public java.math.BigDecimal column053;
+    public java.time.LocalDate column054;
+    public String column055;
+    public long column056;
+    public int column057;
+    public java.math.BigDecimal column058;
+    public java.time.LocalDate column059;
+    public String column060;
+    public long column061;
+    public int column062;
+    public java.math.BigDecimal column063;
+    public java.time.LocalDate column064;
+    public String column065;
+    public long column066;
+    public int column067;
+    public java.math.BigDecimal column068;
+    public java.time.LocalDate column069;
+    public String column070;
+    public long column071;
+    public int column072;
+    public java.math.BigDecimal column073;
+    public java.time.LocalDate column074;
+    public String column075;
+    public long column076;
+    public int column077;
+    public java.math.BigDecimal column078;
+    public java.time.LocalDate column079;
+    public String column080;
+    public long column081;
+    public int column082;
+    public java.math.BigDecimal column083;
+    public java.time.LocalDate column084;
+    public String column085;
+    public long column086;
+    public int column087;
+    public java.math.BigDecimal column088;
+    public java.time.LocalDate column089;
+    public String column090;
+    public long column091;
+    public int column092;
+    public java.math.BigDecimal column093;
+    public java.time.LocalDate column094;
+    public String column095;
+    public long column096;
+    public int column097;
+    public java.math.BigDecimal column098;
+    public java.time.LocalDate column099;
+    public String column100;
+    public long column101;
+    public int column102;
+    public java.math.BigDecimal column103;
+    public java.time.LocalDate column104;
+    public String column105;
+    public long column106;
+    public int column107;
+    public java.math.BigDecimal column108;
+    public java.time.LocalDate column109;
+    public String column110;
+    public long column111;
+    public int column112;
+    public java.math.BigDecimal column113;
+    public java.time.LocalDate column114;
+    public String column115;
+    public long column116;
+    public int column117;
+    public java.math.BigDecimal column118;
+    public java.time.LocalDate column119;
+    public String column120;
+    public long column121;
+    public int column122;
+    public java.math.BigDecimal column123;
+    public java.time.LocalDate column124;
+    public String column125;
+    public long column126;
+    public int column127;
+    public java.math.BigDecimal column128;
+    public java.time.LocalDate column129;
+    public String column130;
+    public long column131;
+    public int column132;
+    public java.math.BigDecimal column133;
+    public java.time.LocalDate column134;
+    public String column135;
+    public long column136;
+    public int column137;
+    public java.math.BigDecimal column138;
+    public java.time.LocalDate column139;
+    public String column140;
+    public long column141;
+    public int column142;
+    public java.math.BigDecimal column143;
+    public java.time.LocalDate column144;
+    public String column145;
+    public long column146;
+    public int column147;
+    public java.math.BigDecimal column148;
+    public java.time.LocalDate column149;
+    public String column150;
+    public long column151;
+    public int column152;
+    public java.math.BigDecimal column153;
+    public java.time.LocalDate column154;
+    public String column155;
+    public long column156;
+    public int column157;
+    public java.math.BigDecimal column158;
+    public java.time.LocalDate column159;
+    public String column160;
+    public long column161;
+    public int column162;
+    public java.math.BigDecimal column163;
+    public java.time.LocalDate column164;
+    public String column165;
+    public long column166;
+    public int column167;
+    public java.math.BigDecimal column168;
+    public java.time.LocalDate column169;
+    public String column170;
+    public long column171;
+    public int column172;
+    public java.math.BigDecimal column173;
+    public java.time.LocalDate column174;
+    public String column175;
+    public long column176;
+    public int column177;
+    public java.math.BigDecimal column178;
+    public java.time.LocalDate column179;
+    public String column180;
+    public long column181;
+    public int column182;
+    public java.math.BigDecimal column183;
+    public java.time.LocalDate column184;
+    public String column185;
+    public long column186;
+    public int column187;
+    public java.math.BigDecimal column188;
+    public java.time.LocalDate column189;
+    public String column190;
+    public long column191;
+    public int column192;
+    public java.math.BigDecimal column193;
+    public java.time.LocalDate column194;
+    public String column195;
+    public long column196;
+    public int column197;
+    public java.math.BigDecimal column198;
+    public java.time.LocalDate column199;
+
+    @Override
+    public Map<String, Where<?>> getWheres() {
+      return wheres;
+    }
+
+    @Override
+    public Queue<Sequentially.OrderBy> getOrder() {
+      return order;
+    }
+  }
+
+  private Fixtures() {}
+}
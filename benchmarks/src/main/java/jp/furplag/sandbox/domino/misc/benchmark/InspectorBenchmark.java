@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import jp.furplag.sandbox.domino.misc.generic.Inspector;
+
+/**
+ * benchmarks of {@link Inspector} .
+ *
+ * @author furplag
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InspectorBenchmark {
+
+  private Inspector<Fixtures.Zero.One.Two.Three.Four.Five> inspector;
+
+  private Field field;
+
+  private Inspector<Fixtures.Wide200> wide200;
+
+  @Setup
+  public void setup() {
+    inspector = Inspector.of(Fixtures.Zero.One.Two.Three.Four.Five.class);
+    field = inspector.getField("alternate");
+    wide200 = Inspector.of(Fixtures.Wide200.class);
+  }
+
+  /** lookup of the shared inspector . */
+  @Benchmark
+  public Inspector<?> lookup() {
+    return Inspector.of(Fixtures.Zero.One.Two.Three.Four.Five.class);
+  }
+
+  /** builds the inspector of deep hierarchy from scratch . */
+  @Benchmark
+  public Inspector<?> buildDeep() {
+    Inspector.Registry.remove(Fixtures.Zero.One.Two.Three.Four.Five.class);
+
+    return Inspector.of(Fixtures.Zero.One.Two.Three.Four.Five.class);
+  }
+
+  /** builds the inspector of wide entity from scratch . */
+  @Benchmark
+  public Inspector<?> buildWide() {
+    Inspector.Registry.remove(Fixtures.Wide.class);
+
+    return Inspector.of(Fixtures.Wide.class);
+  }
+
+  /** builds the inspector of 200 columns entity from scratch . */
+  @Benchmark
+  public Inspector<?> buildWide200() {
+    Inspector.Registry.remove(Fixtures.Wide200.class);
+
+    return Inspector.of(Fixtures.Wide200.class);
+  }
+
+  /** resolves the columns of 200 columns entity, in the way before single pass construction, for comparison with {@link #buildWide200()} . */
+  @Benchmark
+  public List<Field> resolveWide200PerField() {
+    return wide200.getFields((field) -> Inspector.Entities.Names.getName(field, Inspector.Entities.Names.getNamingType(Fixtures.Wide200.class)));
+  }
+
+  /** lookup of a field by name . */
+  @Benchmark
+  public Field getField() {
+    return inspector.getField("toggle");
+  }
+
+  /** lookup of a column name . */
+  @Benchmark
+  public String getName() {
+    return inspector.getName(field);
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.origin.Conditionally;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+/**
+ * benchmarks of rendering SQL .
+ *
+ * @author furplag
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+  private Fixtures.Zero.One.Two.Three.Four.Five entity;
+
+  private Fixtures.Wide wide;
+
+  @Setup
+  public void setup() {
+    entity = new Fixtures.Zero.One.Two.Three.Four.Five();
+    entity.<Long, Conditionally>where("primaryKey", Where.Operator.Includes, 1L, 2L, 3L);
+    entity.<String, Conditionally>where("a", Where.Operator.Contains, "a");
+    entity.<Long, Conditionally>where("alternate", true, 1L, 10L);
+    entity.<Conditionally>orderBy("primaryKey", true);
+    entity.<Conditionally>orderBy("alternate");
+    wide = new Fixtures.Wide();
+  }
+
+  /** a query which has where clause and order by clause . */
+  @Benchmark
+  public String select() {
+    return entity.select(SelectBuilder.newInstance(Fixtures.BenchConfig.singleton())).getSql().getRawSql();
+  }
+
+  /** a query of the wide entity, without any condition . */
+  @Benchmark
+  public String selectWide() {
+    return wide.select(SelectBuilder.newInstance(Fixtures.BenchConfig.singleton())).getSql().getRawSql();
+  }
+
+  /** column names of the wide entity, with excludes . */
+  @Benchmark
+  public String selectColumnNames() {
+    return wide.selectColumnNames("column001", "column013", "column029");
+  }
+
+  /** order by clause . */
+  @Benchmark
+  public String orderClause() {
+    return entity.orderClause();
+  }
+}
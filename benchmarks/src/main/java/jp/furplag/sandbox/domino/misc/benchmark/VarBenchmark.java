@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.vars.Var;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+/**
+ * benchmarks of {@link Var} and {@link Where} .
+ *
+ * @author furplag
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VarBenchmark {
+
+  private final Fixtures.Zero.One.Two.Three.Four.Five entity = new Fixtures.Zero.One.Two.Three.Four.Five();
+
+  private Field primaryKey;
+
+  private Field toggle;
+
+  private Field embedded;
+
+  private Long[] values;
+
+  @Setup
+  public void setup() {
+    final Inspector<?> inspector = entity.inspector();
+    primaryKey = inspector.getField("primaryKey");
+    toggle = inspector.getField("toggle");
+    embedded = inspector.getField("c");
+    values = new Long[] { 1L, 2L, 3L, 5L, 8L, 13L, 21L, 34L };
+  }
+
+  /** a variable of a field . */
+  @Benchmark
+  public Object varOfField() {
+    return Var.varOf(entity, primaryKey, 1L).getValue();
+  }
+
+  /** a variable of a domain . */
+  @Benchmark
+  public Object varOfDomain() {
+    return Var.varOf(entity, toggle, null).getValue();
+  }
+
+  /** a variable of an embeddable . */
+  @Benchmark
+  public Object varOfEmbeddable() {
+    return Var.varOf(entity, embedded, null).getValue();
+  }
+
+  /** a condition of equality . */
+  @Benchmark
+  public Object whereEqual() {
+    return Where.of(Var.varOf(entity, primaryKey, 1L), Where.Operator.Equal).values();
+  }
+
+  /** a condition of "in" . */
+  @Benchmark
+  public Object whereIncludes() {
+    return Where.of(Var.varOf(entity, primaryKey, values), Where.Operator.Includes).values();
+  }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import lombok.Getter;
+
+/**
+ * a {@link DataSource} which tracks statements in use per thread, so that another thread can cancel the query running .
+ * <p>
+ * {@link SingleFlight#cancel(Object)} and the cancellation of {@link jp.furplag.sandbox.domino.misc.origin.Publisher} cancel the statements
+ * which the executing thread opened through this, with {@link Statement#cancel()} . without this, a query stops at the query timeout at the latest .
+ * </p>
+ *
+ * <pre>
+ * public DataSource getDataSource() {
+ *   return new CancellableDataSource(dataSource);
+ * }
+ * </pre>
+ *
+ * @author furplag
+ *
+ */
+public final class CancellableDataSource implements DataSource {
+
+  /** statements which opened and not yet closed per thread, with the sequence in opening . */
+  private static final Map<Thread, Map<Statement, Long>> opened = new ConcurrentHashMap<>();
+
+  /** the sequence of statements in opening . */
+  private static final AtomicLong sequence = new AtomicLong();
+
+  /** the data source . */
+  @Getter
+  private final DataSource dataSource;
+
+  /**
+   *
+   * @param dataSource the data source
+   */
+  public CancellableDataSource(final DataSource dataSource) {
+    this.dataSource = Objects.requireNonNull(dataSource);
+  }
+
+  /**
+   * returns the mark, statements which open after this are the target of {@link #cancel(Thread, long)} .
+   *
+   * @return the mark
+   */
+  public static long mark() {
+    return sequence.get();
+  }
+
+  /**
+   * cancels the statements which the thread opened after the mark, and not yet closed .
+   *
+   * @param thread the thread which executes queries
+   * @param mark the mark ( {@link #mark()} )
+   * @return the count of statements which cancelled
+   */
+  public static int cancel(final Thread thread, final long mark) {
+    int cancelled = 0;
+    for (Map.Entry<Statement, Long> statement : opened.getOrDefault(Objects.requireNonNull(thread), Map.of()).entrySet()) {
+      try {
+        if (statement.getValue() > mark) {
+          statement.getKey().cancel();
+          cancelled++;
+        }
+      } catch (SQLException e) {
+        // the statement has closed, or the driver could not cancel .
+      }
+    }
+
+    return cancelled;
+  }
+
+  /**
+   * returns the count of statements which the thread opened, and not yet closed .
+   *
+   * @param thread the thread which executes queries
+   * @return the count of statements in use
+   */
+  static int opened(final Thread thread) {
+    return opened.getOrDefault(thread, Map.of()).size();
+  }
+
+  /**
+   * returns the statement which untracks itself in closing .
+   *
+   * @param statement {@link Statement}
+   * @param type the interface of the statement
+   * @return the statement tracked
+   */
+  private static Object track(final Statement statement, final Class<?> type) {
+    final Thread thread = Thread.currentThread();
+    opened.compute(thread, (t, statements) -> {
+      final Map<Statement, Long> _statements = Objects.requireNonNullElseGet(statements, ConcurrentHashMap::new);
+      _statements.put(statement, sequence.incrementAndGet());
+
+      return _statements;
+    });
+
+    return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+      if ("close".equals(method.getName()) && method.getParameterCount() < 1) {
+        opened.computeIfPresent(thread, (t, statements) -> {
+          statements.remove(statement);
+
+          return statements.isEmpty() ? null : statements;
+        });
+      }
+      try {
+        return method.invoke(statement, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  /**
+   * returns the connection which tracks statements .
+   *
+   * @param connection {@link Connection}
+   * @return {@link Connection}
+   */
+  private static Connection wrap(final Connection connection) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+      try {
+        final Object result = method.invoke(connection, args);
+
+        return result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType()) ? track((Statement) result, method.getReturnType()) : result;
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection() throws SQLException {
+    return wrap(dataSource.getConnection());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection(final String username, final String password) throws SQLException {
+    return wrap(dataSource.getConnection(username, password));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return dataSource.getLogWriter();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setLogWriter(final PrintWriter out) throws SQLException {
+    dataSource.setLogWriter(out);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setLoginTimeout(final int seconds) throws SQLException {
+    dataSource.setLoginTimeout(seconds);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return dataSource.getLoginTimeout();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return dataSource.getParentLogger();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> T unwrap(final Class<T> iface) throws SQLException {
+    return iface.isInstance(this) ? iface.cast(this) : dataSource.unwrap(iface);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+  }
+}
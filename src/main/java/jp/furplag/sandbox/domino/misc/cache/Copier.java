@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.seasar.doma.Embeddable;
+import org.seasar.doma.Transient;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+
+/**
+ * copies an entity which has cached, so that a caller never changes the entity in the cache .
+ * <p>
+ * persistent fields are copied to a new instance which created with the constructor without arguments,
+ * {@link Embeddable} is copied in the same way, and arrays and {@link Date} are cloned . other values ( e.g. {@link String},
+ * {@link Number}, java.time and {@link org.seasar.doma.Domain} ) are shared as immutable .
+ * an immutable entity ( which has final fields ) is never copied .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+final class Copier {
+
+  /** the type of {@link MethodHandle} which gets a value . */
+  private static final MethodType getterType = MethodType.methodType(Object.class, Object.class);
+
+  /** the type of {@link MethodHandle} which sets a value . */
+  private static final MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+
+  /** copiers per type, or empty if the type is immutable . */
+  private static final ClassValue<Optional<Copier>> copiers = new ClassValue<>() {
+    @Override
+    protected Optional<Copier> computeValue(Class<?> type) {
+      return Copier.of(type);
+    }
+  };
+
+  /** creates an instance . */
+  private final MethodHandle constructor;
+
+  /** getters of persistent fields . */
+  private final List<MethodHandle> getters;
+
+  /** setters of persistent fields . */
+  private final List<MethodHandle> setters;
+
+  /**
+   *
+   * @param constructor creates an instance
+   * @param getters getters of persistent fields
+   * @param setters setters of persistent fields
+   */
+  private Copier(final MethodHandle constructor, final List<MethodHandle> getters, final List<MethodHandle> setters) {
+    this.constructor = constructor;
+    this.getters = Collections.unmodifiableList(getters);
+    this.setters = Collections.unmodifiableList(setters);
+  }
+
+  /**
+   * returns the copier of the type .
+   *
+   * @param type the type of entity, or {@link Embeddable}
+   * @return the copier, or empty if the type is immutable
+   */
+  private static Optional<Copier> of(final Class<?> type) {
+    final List<Field> fields = new ArrayList<>();
+    for (Class<?> _type = type; Objects.nonNull(_type) && !Object.class.equals(_type); _type = _type.getSuperclass()) {
+      for (Field field : _type.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()) && !field.isAnnotationPresent(Transient.class) && !field.isSynthetic()) {
+          fields.add(field);
+        }
+      }
+    }
+    if (fields.stream().anyMatch((field) -> Modifier.isFinal(field.getModifiers()))) {
+      return Optional.empty();
+    }
+    try {
+      final MethodHandle constructor = MethodHandles.privateLookupIn(type, MethodHandles.lookup()).findConstructor(type, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+      final List<MethodHandle> getters = new ArrayList<>();
+      final List<MethodHandle> setters = new ArrayList<>();
+      for (Field field : fields) {
+        final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+        getters.add(lookup.unreflectGetter(field).asType(getterType));
+        setters.add(lookup.unreflectSetter(field).asType(setterType));
+      }
+
+      return Optional.of(new Copier(constructor, getters, setters));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(String.format("could not copy \"%s\", the type must have a constructor without arguments, or be immutable .", type.getName()), e);
+    }
+  }
+
+  /**
+   * returns a copy of the value .
+   *
+   * @param <T> the type of value
+   * @param value the value
+   * @return a copy of the value, or the value itself if it is immutable
+   */
+  @SuppressWarnings({ "unchecked" })
+  static <T> T copyOf(final T value) {
+    if (Objects.isNull(value)) {
+      return null;
+    } else if (value.getClass().isArray()) {
+      final int length = Array.getLength(value);
+      final Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+      System.arraycopy(value, 0, copy, 0, length);
+
+      return (T) copy;
+    } else if (value instanceof Date) {
+      return (T) ((Date) value).clone();
+    } else if (!(value instanceof Origin) && !value.getClass().isAnnotationPresent(Embeddable.class)) {
+      return value;
+    }
+
+    return copiers.get(value.getClass()).map((copier) -> (T) copier.copy(value)).orElse(value);
+  }
+
+  /**
+   * returns a copy of the instance .
+   *
+   * @param value the instance
+   * @return a copy of the instance
+   */
+  private Object copy(final Object value) {
+    try {
+      final Object copy = (Object) constructor.invokeExact();
+      for (int i = 0; i < getters.size(); i++) {
+        setters.get(i).invokeExact(copy, copyOf((Object) getters.get(i).invokeExact(value)));
+      }
+
+      return copy;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
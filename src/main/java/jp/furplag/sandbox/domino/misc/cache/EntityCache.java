@@ -0,0 +1,326 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+import jp.furplag.sandbox.domino.misc.vars.Var;
+import jp.furplag.sandbox.stream.Streamr;
+import lombok.Value;
+
+/**
+ * a read-through cache of entities keyed by the primary key (s), enabled per entity with {@link Cached} .
+ * <p>
+ * each entity has its own region, bounded by {@link Cached#maximumSize()} which evicts least recently used one, and expires entities
+ * after {@link Cached#expireAfterSeconds()} . {@link jp.furplag.sandbox.domino.misc.origin.Bulk} invalidates the entities which it
+ * writes, and writes in another way ( e.g. DAO ) should call {@link #invalidate(Origin)} . the cache holds a copy of the entity which
+ * loaded, and returns a copy of it to each caller ( see {@link Copier} ), so that changes of a caller never reach the cache and others .
+ * </p>
+ * <p>
+ * integral numbers in the key are compared as long, so that the key "1" of int and the key "1" of long are the same .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class EntityCache {
+
+  /**
+   * a cached entity .
+   *
+   * @author furplag
+   *
+   */
+  @Value
+  private static class Entry {
+
+    /** the entity . */
+    Object entity;
+
+    /** the time to expire in nanoseconds . */
+    long expiresAt;
+  }
+
+  /**
+   * the cache of an entity .
+   *
+   * @author furplag
+   *
+   */
+  private final class Region {
+
+    /** the maximum count of entities . */
+    private final int maximumSize;
+
+    /** the nanoseconds to expire the entity after cached . */
+    private final long expireAfterNanos;
+
+    /** entities and the time to expire, keyed by the primary key (s) . */
+    private final Map<List<?>, Entry> entries;
+
+    /** count of invalidations, a load which started before an invalidation never stores its result . */
+    private long generation;
+
+    /**
+     *
+     * @param cached {@link Cached}
+     */
+    private Region(final Cached cached) {
+      maximumSize = Math.max(1, cached.maximumSize());
+      expireAfterNanos = TimeUnit.SECONDS.toNanos(Math.max(0, cached.expireAfterSeconds()));
+      entries = new LinkedHashMap<>(16, .75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<?>, EntityCache.Entry> eldest) {
+          final boolean evict = size() > maximumSize;
+          if (evict) {
+            evictions.increment();
+          }
+
+          return evict;
+        }
+      };
+    }
+  }
+
+  /** the cache which shared in process . */
+  private static final EntityCache shared = new EntityCache(System::nanoTime);
+
+  /** returns the current time in nanoseconds . */
+  private final LongSupplier ticker;
+
+  /** regions per entity class . */
+  private final ClassValue<Optional<Region>> regions = new ClassValue<>() {
+    @Override
+    protected Optional<Region> computeValue(Class<?> entityClass) {
+      return Optional.ofNullable(entityClass.getAnnotation(Cached.class)).map(Region::new);
+    }
+  };
+
+  /** count of lookups which resolved from the cache . */
+  private final LongAdder hits = new LongAdder();
+
+  /** count of lookups which had to load the entity . */
+  private final LongAdder misses = new LongAdder();
+
+  /** count of entities which evicted from the cache . */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   *
+   * @param ticker returns the current time in nanoseconds
+   */
+  EntityCache(final LongSupplier ticker) {
+    this.ticker = Objects.requireNonNull(ticker);
+  }
+
+  /**
+   * returns the cache which shared in process .
+   *
+   * @return {@link EntityCache}
+   */
+  public static EntityCache shared() {
+    return shared;
+  }
+
+  /**
+   * tests whether the entity enables cache .
+   *
+   * @param entityClass the type of entity
+   * @return true if the entity annotated with {@link Cached}
+   */
+  public static boolean isCached(final Class<?> entityClass) {
+    return Objects.nonNull(entityClass) && entityClass.isAnnotationPresent(Cached.class);
+  }
+
+  /**
+   * returns the fields of primary key (s) .
+   *
+   * @param entityClass the type of entity
+   * @return the fields of primary key (s)
+   */
+  private static List<Field> identities(final Class<? extends Origin> entityClass) {
+    return Streamr.Filter.filtering(Inspector.of(entityClass).getFields(), Inspector.Predicates::isIdentity).collect(Collectors.toList());
+  }
+
+  /**
+   * returns the key of cache .
+   *
+   * @param ids the values of primary key (s)
+   * @return the key of cache
+   */
+  private static List<?> keyOf(final List<?> ids) {
+    return Collections.unmodifiableList(ids.stream().map((id) -> id instanceof Long || id instanceof Integer || id instanceof Short || id instanceof Byte ? (Object) ((Number) id).longValue() : id).collect(Collectors.toCollection(ArrayList::new)));
+  }
+
+  /**
+   * returns the values of primary key (s) of the entity .
+   *
+   * @param entity the entity
+   * @return the values of primary key (s)
+   */
+  public static List<?> identitiesOf(final Origin entity) {
+    return identities(entity.getClass()).stream().map((field) -> Var.varOf(entity, field).getValue()).collect(Collectors.toList());
+  }
+
+  /**
+   * returns the entity of the primary key (s), loads it if not cached .
+   *
+   * @param <ENTITY> the type of entity
+   * @param entityClass the type of entity
+   * @param ids the values of primary key (s), in order of the fields
+   * @param loader loads the entity, returns null if not exists
+   * @return the entity, or empty if not exists
+   */
+  public <ENTITY extends Origin> Optional<ENTITY> get(final Class<ENTITY> entityClass, final List<?> ids, final Function<List<?>, ENTITY> loader) {
+    if (identities(Objects.requireNonNull(entityClass)).size() != Objects.requireNonNull(ids).size()) {
+      throw new IllegalArgumentException(String.format("the count of primary key (s) of %s must be %d, but %d .", entityClass.getSimpleName(), identities(entityClass).size(), ids.size()));
+    }
+    final Region region = regions.get(entityClass).orElse(null);
+    if (Objects.isNull(region)) {
+      return Optional.ofNullable(loader.apply(ids));
+    }
+    final List<?> key = keyOf(ids);
+    final long generation;
+    synchronized (region) {
+      final Entry entry = region.entries.get(key);
+      if (Objects.nonNull(entry) && ticker.getAsLong() - entry.getExpiresAt() < 0) {
+        hits.increment();
+
+        return Optional.of(entityClass.cast(Copier.copyOf(entry.getEntity())));
+      } else if (Objects.nonNull(entry)) {
+        region.entries.remove(key);
+      }
+      generation = region.generation;
+    }
+    misses.increment();
+    final ENTITY entity = loader.apply(ids);
+    if (Objects.nonNull(entity)) {
+      synchronized (region) {
+        if (region.generation == generation) {
+          region.entries.put(key, new Entry(Copier.copyOf(entity), ticker.getAsLong() + region.expireAfterNanos));
+        }
+      }
+    }
+
+    return Optional.ofNullable(entity);
+  }
+
+  /**
+   * discards the entity of the primary key (s) .
+   *
+   * @param entityClass the type of entity
+   * @param ids the values of primary key (s), in order of the fields
+   */
+  public void invalidate(final Class<? extends Origin> entityClass, final List<?> ids) {
+    regions.get(Objects.requireNonNull(entityClass)).ifPresent((region) -> {
+      synchronized (region) {
+        region.generation++;
+        region.entries.remove(keyOf(ids));
+      }
+    });
+  }
+
+  /**
+   * discards the entity which has the same primary key (s) .
+   *
+   * @param entity the entity
+   */
+  public void invalidate(final Origin entity) {
+    if (Objects.nonNull(entity) && isCached(entity.getClass())) {
+      invalidate(entity.getClass(), identitiesOf(entity));
+    }
+  }
+
+  /**
+   * discards the entities which have the same primary key (s) .
+   *
+   * @param entities entities
+   */
+  public void invalidate(final Collection<? extends Origin> entities) {
+    Streamr.stream(entities).forEach(this::invalidate);
+  }
+
+  /**
+   * discards all entities of the type .
+   *
+   * @param entityClass the type of entity
+   */
+  public void invalidateAll(final Class<? extends Origin> entityClass) {
+    regions.get(Objects.requireNonNull(entityClass)).ifPresent((region) -> {
+      synchronized (region) {
+        region.generation++;
+        region.entries.clear();
+      }
+    });
+  }
+
+  /**
+   * returns the count of entities which evicted from the cache .
+   *
+   * @return the count of entities which evicted from the cache
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * returns the count of lookups which resolved from the cache .
+   *
+   * @return the count of lookups which resolved from the cache
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * returns the count of lookups which had to load the entity .
+   *
+   * @return the count of lookups which had to load the entity
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * returns the count of cached entities of the type .
+   *
+   * @param entityClass the type of entity
+   * @return the count of cached entities
+   */
+  public int size(final Class<? extends Origin> entityClass) {
+    return regions.get(Objects.requireNonNull(entityClass)).map((region) -> {
+      synchronized (region) {
+        return region.entries.size();
+      }
+    }).orElse(0);
+  }
+}
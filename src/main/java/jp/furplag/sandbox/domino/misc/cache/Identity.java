@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+
+/**
+ * a part of key which equals to another one only if those refer the same instance, e.g. {@link org.seasar.doma.jdbc.Config} or the type of entity .
+ * <p>
+ * the referent is held weakly, so that a key in the cache never pins a class loader which has redeployed .
+ * the key of collected referent never equals to others, and will be evicted in time .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+final class Identity {
+
+  /** the referent . */
+  private final WeakReference<Object> referent;
+
+  /** the identity hash code of the referent . */
+  private final int hash;
+
+  /**
+   *
+   * @param referent the referent
+   */
+  private Identity(final Object referent) {
+    this.referent = new WeakReference<>(Objects.requireNonNull(referent));
+    this.hash = System.identityHashCode(referent);
+  }
+
+  /**
+   * returns a part of key which refers the instance .
+   *
+   * @param referent the referent
+   * @return {@link Identity}
+   */
+  static Identity of(final Object referent) {
+    return new Identity(referent);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (!(obj instanceof Identity)) {
+      return false;
+    }
+    final Object referent = this.referent.get();
+
+    return Objects.nonNull(referent) && referent == ((Identity) obj).referent.get();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    final Object referent = this.referent.get();
+
+    return referent instanceof Class ? ((Class<?>) referent).getName() : Objects.isNull(referent) ? "(collected)" : String.format("%s@%x", referent.getClass().getSimpleName(), hash);
+  }
+}
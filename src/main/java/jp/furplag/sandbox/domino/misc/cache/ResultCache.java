@@ -0,0 +1,409 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.Sql;
+import org.seasar.doma.jdbc.SqlParameter;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.generic.Accessor;
+import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * a cache of query results, keyed by {@link Config}, the type of row, the text of SQL and the values of parameters .
+ * <p>
+ * the same query against another database ( e.g. a shard ) or of another type never shares the result,
+ * {@link Config} and the type are held weakly in the key, but cached rows hold their own class, so that {@link #clear()} the cache
+ * before unloading a class loader of entities .
+ * </p>
+ * <p>
+ * the memory is bounded by the estimated size of results, which evicts least recently used one, and results expire after the time to
+ * live . expired results are swept out on lookups at most once per the time to live . results are tagged with the names of tables ( {@link Inspector#getName()} ) which the query reads, and discarded when
+ * {@link #invalidate(String)} the table . {@link jp.furplag.sandbox.domino.misc.origin.Bulk} invalidates the tables which it writes .
+ * concurrent misses of the same query execute it only once ( see {@link SingleFlight} ), with the query timeout of {@link SingleFlight#timeout()} .
+ * each caller receives an unmodifiable list of copies of the rows ( see {@link Copier} ), so that changes of a caller never reach the cache and others .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class ResultCache {
+
+  /** the system property to specify the maximum bytes of {@link #shared()} . */
+  public static final String maximumWeightProperty = ResultCache.class.getName() + ".maximumWeight";
+
+  /** the system property to specify the seconds to expire results of {@link #shared()} . */
+  public static final String expireAfterSecondsProperty = ResultCache.class.getName() + ".expireAfterSeconds";
+
+  /**
+   * a cached result .
+   *
+   * @author furplag
+   *
+   */
+  @Value
+  private static class Entry {
+
+    /** the result . */
+    List<?> result;
+
+    /** the names of tables which the query reads . */
+    Set<String> tables;
+
+    /** the estimated bytes of the result . */
+    long weight;
+
+    /** the time to expire in nanoseconds . */
+    long expiresAt;
+  }
+
+  /** the cache which shared in process . */
+  private static final ResultCache shared = new ResultCache(Long.getLong(maximumWeightProperty, 64L << 20), TimeUnit.SECONDS.toNanos(Long.getLong(expireAfterSecondsProperty, 5L)), System::nanoTime);
+
+  /** the maximum bytes of results . */
+  @Getter
+  private final long maximumWeight;
+
+  /** the nanoseconds to expire results . */
+  private final long expireAfterNanos;
+
+  /** returns the current time in nanoseconds . */
+  private final LongSupplier ticker;
+
+  /** results keyed by {@link Config}, the type of row, the text of SQL and the values of parameters . */
+  private final LinkedHashMap<List<?>, Entry> entries = new LinkedHashMap<>(16, .75f, true);
+
+  /** count of invalidations per table, a load which started before an invalidation never stores its result . */
+  private final Map<String, Long> generations = new HashMap<>();
+
+  /** the estimated bytes of results . */
+  private long weight;
+
+  /** the time to sweep expired results next in nanoseconds . */
+  private long sweepsAt;
+
+  /** count of lookups which resolved from the cache . */
+  private final LongAdder hits = new LongAdder();
+
+  /** count of lookups which had to execute the query . */
+  private final LongAdder misses = new LongAdder();
+
+  /** count of results which evicted from the cache . */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   *
+   * @param maximumWeight the maximum bytes of results
+   * @param expireAfterSeconds the seconds to expire results
+   */
+  public ResultCache(final long maximumWeight, final long expireAfterSeconds) {
+    this(maximumWeight, TimeUnit.SECONDS.toNanos(expireAfterSeconds), System::nanoTime);
+  }
+
+  /**
+   *
+   * @param maximumWeight the maximum bytes of results
+   * @param expireAfterNanos the nanoseconds to expire results
+   * @param ticker returns the current time in nanoseconds
+   */
+  ResultCache(final long maximumWeight, final long expireAfterNanos, final LongSupplier ticker) {
+    if (maximumWeight < 1) {
+      throw new IllegalArgumentException(String.format("maximum weight must be positive, but %d .", maximumWeight));
+    }
+    this.maximumWeight = maximumWeight;
+    this.expireAfterNanos = Math.max(0, expireAfterNanos);
+    this.ticker = Objects.requireNonNull(ticker);
+    sweepsAt = ticker.getAsLong();
+  }
+
+  /**
+   * returns the cache which shared in process .
+   *
+   * @return {@link ResultCache}
+   */
+  public static ResultCache shared() {
+    return shared;
+  }
+
+  /**
+   * returns the key of the query .
+   *
+   * @param sql {@link Sql}
+   * @return the text of SQL and the values of parameters
+   */
+  private static List<?> keyOf(final Sql<?> sql) {
+    final List<Object> values = new ArrayList<>();
+    for (SqlParameter parameter : sql.getParameters()) {
+      values.add(parameter.getValue());
+    }
+
+    return List.of(sql.getRawSql(), values);
+  }
+
+  /**
+   * returns the key of the query .
+   *
+   * @param config {@link Config} which executes the query
+   * @param rowType the type of row
+   * @param sql {@link Sql}
+   * @return {@link Config}, the type of row, the text of SQL and the values of parameters
+   */
+  static List<?> keyOf(final Config config, final Class<?> rowType, final Sql<?> sql) {
+    return List.of(Identity.of(config), Identity.of(rowType), keyOf(sql));
+  }
+
+  /**
+   * returns the name of table in lower case .
+   *
+   * @param table the name of table
+   * @return the name of table in lower case
+   */
+  private static String normalize(final String table) {
+    return Objects.toString(table, "").toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * returns the estimated bytes of the value .
+   *
+   * @param value the value
+   * @return the estimated bytes of the value
+   */
+  private static long weightOf(final Object value) {
+    if (Objects.isNull(value)) {
+      return 8;
+    } else if (value instanceof CharSequence) {
+      return 40 + 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    }
+
+    return 24;
+  }
+
+  /**
+   * returns the estimated bytes of the result .
+   *
+   * @param result the result of query
+   * @return the estimated bytes of the result
+   */
+  static long weightOf(final List<?> result) {
+    long weight = 48 + 8L * result.size();
+    for (Object row : result) {
+      if (row instanceof Origin) {
+        final Inspector<?> inspector = ((Origin) row).inspector();
+        weight += 16;
+        for (Field field : inspector.getFields()) {
+          final Accessor accessor = inspector.getAccessor(field);
+          weight += 8 + weightOf(accessor.getValue(accessor.getOwner(row)));
+        }
+      } else {
+        weight += weightOf(row);
+      }
+    }
+
+    return weight;
+  }
+
+  /**
+   * returns the result of the query, executes it if not cached .
+   *
+   * @param <T> the type of row
+   * @param config {@link Config} which the query built with
+   * @param selectBuilder {@link SelectBuilder} ( query structured )
+   * @param rowType the type of row
+   * @param tables the names of tables which the query reads
+   * @param executor executes the query
+   * @return copies of the result of query, unmodifiable
+   */
+  @SuppressWarnings({ "unchecked" })
+  public <T> List<T> get(final Config config, final SelectBuilder selectBuilder, final Class<T> rowType, final Collection<String> tables, final Function<SelectBuilder, List<T>> executor) {
+    final List<?> key = keyOf(Objects.requireNonNull(config), Objects.requireNonNull(rowType), selectBuilder.getSql());
+    final Set<String> _tables = Objects.requireNonNull(tables).stream().map(ResultCache::normalize).collect(Collectors.toUnmodifiableSet());
+    final Map<String, Long> started;
+    synchronized (this) {
+      sweep(ticker.getAsLong());
+      final Entry entry = entries.get(key);
+      if (Objects.nonNull(entry) && ticker.getAsLong() - entry.getExpiresAt() < 0) {
+        hits.increment();
+
+        return copiesOf((List<T>) entry.getResult());
+      } else if (Objects.nonNull(entry)) {
+        remove(key);
+      }
+      started = _tables.stream().collect(Collectors.toMap((table) -> table, (table) -> generations.getOrDefault(table, 0L)));
+    }
+    misses.increment();
+    final Duration timeout = SingleFlight.timeout();
+    final List<T> result = SingleFlight.shared().execute(key, timeout, () -> List.copyOf(executor.apply(selectBuilder.queryTimeout(SingleFlight.queryTimeoutOf(timeout)))), false);
+    final long weight = weightOf(result);
+    synchronized (this) {
+      if (weight <= maximumWeight && started.entrySet().stream().allMatch((t) -> generations.getOrDefault(t.getKey(), 0L).equals(t.getValue()))) {
+        remove(key);
+        entries.put(key, new Entry(result, _tables, weight, ticker.getAsLong() + expireAfterNanos));
+        this.weight += weight;
+        for (Iterator<Map.Entry<List<?>, Entry>> iterator = entries.entrySet().iterator(); this.weight > maximumWeight && iterator.hasNext();) {
+          this.weight -= iterator.next().getValue().getWeight();
+          iterator.remove();
+          evictions.increment();
+        }
+      }
+    }
+
+    return copiesOf(result);
+  }
+
+  /**
+   * returns copies of rows .
+   *
+   * @param <T> the type of row
+   * @param result the result of query
+   * @return an unmodifiable list of copies of rows
+   */
+  private static <T> List<T> copiesOf(final List<T> result) {
+    return result.stream().map(Copier::copyOf).collect(Collectors.toUnmodifiableList());
+  }
+
+  /**
+   * removes the result .
+   *
+   * @param key the key of the query
+   */
+  private void remove(final List<?> key) {
+    final Entry entry = entries.remove(key);
+    if (Objects.nonNull(entry)) {
+      weight -= entry.getWeight();
+    }
+  }
+
+  /**
+   * discards expired results, at most once per the time to live .
+   *
+   * @param now the current time in nanoseconds
+   */
+  private void sweep(final long now) {
+    if (now - sweepsAt < 0) {
+      return;
+    }
+    sweepsAt = now + expireAfterNanos;
+    for (Iterator<Map.Entry<List<?>, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+      final Entry entry = iterator.next().getValue();
+      if (now - entry.getExpiresAt() >= 0) {
+        weight -= entry.getWeight();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * discards the results which read the table .
+   *
+   * @param table the name of table
+   */
+  public synchronized void invalidate(final String table) {
+    final String _table = normalize(table);
+    generations.merge(_table, 1L, Long::sum);
+    for (Iterator<Map.Entry<List<?>, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+      final Entry entry = iterator.next().getValue();
+      if (entry.getTables().contains(_table)) {
+        weight -= entry.getWeight();
+        iterator.remove();
+      }
+    }
+  }
+
+  /** discards all results . */
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * returns the count of results which evicted from the cache .
+   *
+   * @return the count of results which evicted from the cache
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * returns the count of lookups which resolved from the cache .
+   *
+   * @return the count of lookups which resolved from the cache
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * returns the ratio of lookups which resolved from the cache .
+   *
+   * @return the ratio of lookups which resolved from the cache, or zero if never looked up
+   */
+  public double hitRate() {
+    final long hits = hits();
+    final long requests = hits + misses();
+
+    return requests < 1 ? 0d : (double) hits / requests;
+  }
+
+  /**
+   * returns the count of lookups which had to execute the query .
+   *
+   * @return the count of lookups which had to execute the query
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * returns the count of results in the cache .
+   *
+   * @return the count of results in the cache
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * returns the estimated bytes of results in the cache .
+   *
+   * @return the estimated bytes of results in the cache
+   */
+  public synchronized long weight() {
+    return weight;
+  }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+
+/**
+ * de-duplicates concurrent executions of the same query, the first one ( leader ) executes and others wait for its result .
+ * <ul>
+ * <li>the result ( or the failure ) of the execution is shared to all of waiting</li>
+ * <li>waiting is bounded by the timeout of each, and the execution is bounded by the timeout of the leader : a query executes with the
+ * query timeout in seconds, and other loader is interrupted when the time has passed</li>
+ * <li>{@link #cancel(Object)} cancels waiting of all, and stops the execution : a loader is interrupted, and a query is cancelled
+ * with {@link java.sql.Statement#cancel()} if the statement opened through {@link CancellableDataSource} ( or stops at the query timeout at the latest ) .
+ * the leader receives {@link CancellationException} only if the execution has failed, and receives its own result if succeeded</li>
+ * </ul>
+ * <p>
+ * the result is shared between threads ( and transactions ), so that it must be treated as read-only ( {@link ResultCache} hands out copies of it ) .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class SingleFlight {
+
+  /** the system property to specify the default timeout in seconds . */
+  public static final String timeoutProperty = SingleFlight.class.getName() + ".timeout";
+
+  /**
+   * an execution in flight .
+   *
+   * @author furplag
+   *
+   */
+  private static final class Flight {
+
+    /** the result of the execution . */
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    /** the thread which executes . */
+    private final Thread leader = Thread.currentThread();
+
+    /** true if the execution stops with interruption, or false if it is bounded by the query timeout . */
+    private final boolean interruptible;
+
+    /** true while the leader executes . */
+    private boolean running = true;
+
+    /** the mark of statements which the leader opens ( see {@link CancellableDataSource#mark()} ) . */
+    private final long mark = CancellableDataSource.mark();
+
+    /** true if the execution has stopped by this flight . */
+    private boolean aborted;
+
+    /**
+     *
+     * @param interruptible true if the execution stops with interruption
+     */
+    private Flight(final boolean interruptible) {
+      this.interruptible = interruptible;
+    }
+
+    /** stops the execution, interrupts the loader or cancels the statements which the leader opened . */
+    private synchronized void abort() {
+      if (!running || aborted) {
+        return;
+      }
+      aborted = true;
+      if (interruptible) {
+        leader.interrupt();
+      } else {
+        CancellableDataSource.cancel(leader, mark);
+      }
+    }
+
+    /** marks the execution has ended, and clears the interruption which this flight caused . */
+    private synchronized void land() {
+      running = false;
+      if (aborted && interruptible) {
+        Thread.interrupted();
+      }
+    }
+  }
+
+  /** the instance which shared in process . */
+  private static final SingleFlight shared = new SingleFlight();
+
+  /** interrupts the leader which has timed out . */
+  private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+    final Thread thread = new Thread(runnable, SingleFlight.class.getSimpleName());
+    thread.setDaemon(true);
+
+    return thread;
+  });
+
+  /** executions in flight . */
+  private final Map<Object, Flight> flights = new ConcurrentHashMap<>();
+
+  /** count of executions . */
+  private final LongAdder executions = new LongAdder();
+
+  /** count of requests which shared the result of another . */
+  private final LongAdder joins = new LongAdder();
+
+  /**
+   * returns the instance which shared in process .
+   *
+   * @return {@link SingleFlight}
+   */
+  public static SingleFlight shared() {
+    return shared;
+  }
+
+  /**
+   * returns the default timeout, specified by the system property {@link #timeoutProperty} ( default: 30 seconds ) .
+   *
+   * @return the default timeout
+   */
+  public static Duration timeout() {
+    return Duration.ofSeconds(Long.getLong(timeoutProperty, 30L));
+  }
+
+  /**
+   * returns the query timeout in seconds ( rounds up ) .
+   *
+   * @param timeout the timeout
+   * @return the query timeout in seconds
+   */
+  static int queryTimeoutOf(final Duration timeout) {
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(1L, (timeout.toMillis() + 999L) / 1000L));
+  }
+
+  /**
+   * executes the query, or waits for the result of the same query in flight .
+   *
+   * @param <T> the type of result
+   * @param config {@link Config} which the query built with
+   * @param selectBuilder {@link SelectBuilder} ( query structured )
+   * @param rowType the type of row
+   * @param timeout the time to wait, and the query timeout in seconds ( rounds up )
+   * @param executor executes the query
+   * @return the result of query
+   */
+  public <T> T select(final Config config, final SelectBuilder selectBuilder, final Class<?> rowType, final Duration timeout, final Function<SelectBuilder, T> executor) {
+    return execute(ResultCache.keyOf(Objects.requireNonNull(config), Objects.requireNonNull(rowType), selectBuilder.getSql()), timeout, () -> executor.apply(selectBuilder.queryTimeout(queryTimeoutOf(timeout))), false);
+  }
+
+  /**
+   * executes the loader, or waits for the result of the same key in flight .
+   * the loader is interrupted when the timeout has passed, or cancelled .
+   *
+   * @param <T> the type of result
+   * @param key the key of execution, e.g. the text of SQL and the values of parameters
+   * @param timeout the time to wait for the result, and to execute the loader
+   * @param loader executes the query
+   * @return the result of loader
+   */
+  public <T> T execute(final Object key, final Duration timeout, final Supplier<T> loader) {
+    return execute(key, timeout, loader, true);
+  }
+
+  /**
+   * executes the loader, or waits for the result of the same key in flight .
+   * the leader receives the result of its own loader, even if the execution has timed out or cancelled in the meantime .
+   *
+   * @param <T> the type of result
+   * @param key the key of execution, e.g. the text of SQL and the values of parameters
+   * @param timeout the time to wait for the result, and to execute the loader
+   * @param loader executes the query
+   * @param interruptible true if the loader stops with interruption, or false if the loader bounds itself ( e.g. the query timeout )
+   * @return the result of loader
+   */
+  <T> T execute(final Object key, final Duration timeout, final Supplier<T> loader, final boolean interruptible) {
+    final long timeoutNanos = Objects.requireNonNull(timeout).toNanos();
+    final Flight flight = new Flight(interruptible);
+    final Flight inflight = flights.putIfAbsent(Objects.requireNonNull(key), flight);
+    if (Objects.nonNull(inflight)) {
+      joins.increment();
+
+      return await(key, inflight, timeoutNanos);
+    }
+    executions.increment();
+    final ScheduledFuture<?> timer = interruptible ? watchdog.schedule(() -> {
+      flight.result.completeExceptionally(new TimeoutException(String.format("timed out in executing \"%s\" .", key)));
+      flight.abort();
+    }, timeoutNanos, TimeUnit.NANOSECONDS) : null;
+    try {
+      final T result = loader.get();
+      flight.result.complete(result);
+
+      return result;
+    } catch (RuntimeException | Error e) {
+      flight.result.completeExceptionally(e);
+    } finally {
+      if (Objects.nonNull(timer)) {
+        timer.cancel(false);
+      }
+      flight.land();
+      flights.remove(key, flight);
+    }
+
+    return await(key, flight, timeoutNanos);
+  }
+
+  /**
+   * waits for the result of the execution .
+   *
+   * @param <T> the type of result
+   * @param key the key of execution
+   * @param flight the execution
+   * @param timeoutNanos the time to wait
+   * @return the result of the execution
+   */
+  @SuppressWarnings({ "unchecked" })
+  private static <T> T await(final Object key, final Flight flight, final long timeoutNanos) {
+    try {
+      return (T) flight.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (TimeoutException e) {
+      throw new IllegalStateException(String.format("timed out in waiting for the result of \"%s\" .", key), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof TimeoutException) {
+        throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * cancels the execution of the key, waiting threads receive {@link CancellationException} .
+   * the loader is interrupted, and a query is cancelled if the statement opened through {@link CancellableDataSource} ( or stops at the query
+   * timeout at the latest ) . the leader receives {@link CancellationException} if the execution has failed, or its own result if succeeded .
+   *
+   * @param key the key of execution
+   * @return true if the execution was in flight
+   */
+  public boolean cancel(final Object key) {
+    final Flight flight = flights.remove(key);
+    if (Objects.isNull(flight) || !flight.result.cancel(false)) {
+      return false;
+    }
+    flight.abort();
+
+    return true;
+  }
+
+  /**
+   * returns the count of executions .
+   *
+   * @return the count of executions
+   */
+  public long executions() {
+    return executions.sum();
+  }
+
+  /**
+   * returns the count of requests which shared the result of another .
+   *
+   * @return the count of requests which shared the result of another
+   */
+  public long joins() {
+    return joins.sum();
+  }
+
+  /**
+   * returns the count of executions in flight .
+   *
+   * @return the count of executions in flight
+   */
+  public int inflight() {
+    return flights.size();
+  }
+}
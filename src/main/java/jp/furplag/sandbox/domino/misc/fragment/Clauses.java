@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.fragment;
+
+import java.util.List;
+import java.util.Objects;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import lombok.Getter;
+
+/**
+ * a {@link SelectBuilder} which knows whether the where clause has opened or not .
+ *
+ * @author furplag
+ *
+ */
+public final class Clauses {
+
+  /** {@link SelectBuilder} . */
+  @Getter
+  private final SelectBuilder selectBuilder;
+
+  /** true if the query already has where clause . */
+  @Getter
+  private boolean whereOpened;
+
+  /**
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @param whereOpened true if the query already has where clause
+   */
+  private Clauses(final SelectBuilder selectBuilder, final boolean whereOpened) {
+    this.selectBuilder = Objects.requireNonNull(selectBuilder);
+    this.whereOpened = whereOpened;
+  }
+
+  /**
+   * returns a clauses of the query which has no where clause yet .
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @return {@link Clauses}
+   */
+  public static Clauses of(final SelectBuilder selectBuilder) {
+    return of(selectBuilder, false);
+  }
+
+  /**
+   * returns a clauses of the query .
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @param whereOpened true if the query already has where clause ( e.g. written by hand )
+   * @return {@link Clauses}
+   */
+  public static Clauses of(final SelectBuilder selectBuilder, final boolean whereOpened) {
+    return new Clauses(selectBuilder, whereOpened);
+  }
+
+  /**
+   * returns a clauses of the query, which detects the where clause from the text of SQL .
+   * <p>
+   * the fallback for the query which written by hand, so that only the "where" outside of parentheses, comments, literals and quoted identifiers counts .
+   * </p>
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @return {@link Clauses}
+   */
+  public static Clauses detect(final SelectBuilder selectBuilder) {
+    return of(selectBuilder, whereOpened(Objects.requireNonNull(selectBuilder).getSql().getRawSql()));
+  }
+
+  /**
+   * tests if the text of SQL has where clause, outside of parentheses, line and block comments, string literals and quoted identifiers .
+   *
+   * @param sql a text of SQL
+   * @return true if the text of SQL has where clause
+   */
+  static boolean whereOpened(final String sql) {
+    int depth = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      final char c = sql.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        i = skip(sql, i + 1, String.valueOf(c));
+      } else if (sql.startsWith("--", i)) {
+        i = skip(sql, i + 2, "\n");
+      } else if (sql.startsWith("/*", i)) {
+        i = skip(sql, i + 2, "*/");
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (depth == 0 && sql.regionMatches(true, i, "where", 0, 5) && isBoundary(sql, i - 1) && isBoundary(sql, i + 5)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * returns the index of the end of closing, or the last index if not closed .
+   * an escaped quote ( e.g. '' ) closes and opens again, so that it needs no special care .
+   *
+   * @param sql a text of SQL
+   * @param from the index to search from
+   * @param closing the closing of a literal or a comment
+   * @return the index of the last character of closing
+   */
+  private static int skip(final String sql, final int from, final String closing) {
+    final int index = sql.indexOf(closing, from);
+
+    return index < 0 ? sql.length() : index + closing.length() - 1;
+  }
+
+  /**
+   * tests if the character at the index is not a part of any word .
+   *
+   * @param sql a text of SQL
+   * @param index the index of character
+   * @return true if the character at the index is not a part of any word
+   */
+  private static boolean isBoundary(final String sql, final int index) {
+    return index < 0 || index >= sql.length() || !Character.isJavaIdentifierPart(sql.charAt(index));
+  }
+
+  /**
+   * renders the template with the values .
+   *
+   * @param template {@link Template}
+   * @param values the values of placeholder
+   * @return this clauses
+   */
+  public Clauses bind(final Template template, final List<?> values) {
+    whereOpened = template.render(selectBuilder, values, whereOpened);
+
+    return this;
+  }
+
+  /**
+   * appends a text of SQL .
+   *
+   * @param sql a text of SQL
+   * @return this clauses
+   */
+  public Clauses sql(final String sql) {
+    selectBuilder.sql(sql);
+
+    return this;
+  }
+
+  /**
+   * appends a condition, with the conjunction " where " or " and " .
+   *
+   * @param condition {@link Template} of the condition
+   * @param values the values of placeholder
+   * @return this clauses
+   */
+  public Clauses where(final Template condition, final List<?> values) {
+    return bind(Template.builder().where().append(condition).build(), values);
+  }
+}
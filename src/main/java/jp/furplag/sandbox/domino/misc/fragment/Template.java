@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.fragment;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.Value;
+
+/**
+ * an immutable fragment of SQL query, which has placeholders of parameter .
+ * <p>
+ * a template renders to {@link SelectBuilder} in the same sequence as it has built, so that the result is exactly the same as
+ * calling {@link SelectBuilder#sql(String)} and {@link SelectBuilder#param(Class, Object)} directly .
+ * the conjunction of conditions is decided in rendering, so that it never needs to scan the text of query ( see {@link Clauses} ) .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+@EqualsAndHashCode(of = { "pieces" })
+@ToString(of = { "pieces" })
+public final class Template {
+
+  /**
+   * a builder of {@link Template} .
+   *
+   * @author furplag
+   *
+   */
+  public static final class Builder {
+
+    /** pieces of the template . */
+    private final List<Piece> pieces = new ArrayList<>();
+
+    private Builder() {}
+
+    /**
+     * appends the template .
+     *
+     * @param template {@link Template}
+     * @return this builder
+     */
+    public Builder append(final Template template) {
+      pieces.addAll(Objects.requireNonNull(template).pieces);
+
+      return this;
+    }
+
+    /**
+     * appends a placeholder of a parameter .
+     *
+     * @param type the type of parameter
+     * @return this builder
+     */
+    public Builder param(final Class<?> type) {
+      pieces.add(new Piece(Kind.Param, null, type));
+
+      return this;
+    }
+
+    /**
+     * appends a placeholder of parameters ( e.g. the values of "in" ) .
+     *
+     * @param type the type of parameter
+     * @return this builder
+     */
+    public Builder params(final Class<?> type) {
+      pieces.add(new Piece(Kind.Params, null, type));
+
+      return this;
+    }
+
+    /**
+     * appends a text of SQL .
+     *
+     * @param sql a text of SQL
+     * @return this builder
+     */
+    public Builder sql(final String sql) {
+      pieces.add(new Piece(Kind.Sql, sql, null));
+
+      return this;
+    }
+
+    /**
+     * appends a conjunction of condition, which renders " where " at first, and " and " after that .
+     *
+     * @return this builder
+     */
+    public Builder where() {
+      pieces.add(new Piece(Kind.Where, null, null));
+
+      return this;
+    }
+
+    /**
+     * returns the template .
+     *
+     * @return {@link Template}
+     */
+    public Template build() {
+      return new Template(pieces);
+    }
+  }
+
+  /** kinds of {@link Piece} . */
+  static enum Kind {
+    Sql, Param, Params, Where;
+  }
+
+  /**
+   * a piece of {@link Template} .
+   *
+   * @author furplag
+   *
+   */
+  @Value
+  static class Piece {
+
+    /** kind of this piece . */
+    Kind kind;
+
+    /** a text of SQL . */
+    String sql;
+
+    /** the type of parameter . */
+    Class<?> type;
+  }
+
+  /** an empty template . */
+  private static final Template empty = new Template(List.of());
+
+  /** pieces of the template . */
+  private final List<Piece> pieces;
+
+  /** the count of placeholder in this template . */
+  @Getter
+  private final int slots;
+
+  private Template(final List<Piece> pieces) {
+    this.pieces = List.copyOf(pieces);
+    this.slots = (int) this.pieces.stream().filter((t) -> Kind.Param.equals(t.getKind()) || Kind.Params.equals(t.getKind())).count();
+  }
+
+  /**
+   * returns a builder of {@link Template} .
+   *
+   * @return {@link Builder}
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * returns an empty template .
+   *
+   * @return {@link Template}
+   */
+  public static Template empty() {
+    return empty;
+  }
+
+  /**
+   * renders this template to {@link SelectBuilder} with the values .
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @param values the values of placeholder, a {@link List} for the placeholder of parameters
+   * @return selectBuilder ( query structured )
+   */
+  public SelectBuilder bind(final SelectBuilder selectBuilder, final List<?> values) {
+    render(selectBuilder, values, false);
+
+    return selectBuilder;
+  }
+
+  /**
+   * renders this template to {@link SelectBuilder} with the values .
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @param values the values of placeholder, a {@link List} for the placeholder of parameters
+   * @param whereOpened true if the query already has where clause
+   * @return true if the query has where clause after rendered
+   */
+  @SuppressWarnings({ "unchecked" })
+  boolean render(final SelectBuilder selectBuilder, final List<?> values, final boolean whereOpened) {
+    boolean opened = whereOpened;
+    if (Objects.requireNonNull(values).size() != slots) {
+      throw new IllegalArgumentException(String.format("the count of values must be %d, but %d .", slots, values.size()));
+    }
+    final Iterator<?> iterator = values.iterator();
+    for (Piece piece : pieces) {
+      switch (piece.getKind()) {
+        case Param:
+          selectBuilder.param((Class<Object>) piece.getType(), iterator.next());
+          break;
+        case Params:
+          selectBuilder.params((Class<Object>) piece.getType(), (List<Object>) iterator.next());
+          break;
+        case Where:
+          selectBuilder.sql(opened ? " and " : " where ");
+          opened = true;
+          break;
+        default:
+          selectBuilder.sql(piece.getSql());
+      }
+    }
+
+    return opened;
+  }
+}
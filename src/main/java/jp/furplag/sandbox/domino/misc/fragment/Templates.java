@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.fragment;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.Getter;
+
+/**
+ * a bounded store of compiled {@link Template}, keyed by the type of entity and the shape of query, and evicts least recently used one .
+ * <p>
+ * templates are stored per type through {@link ClassValue}, so that the store never pins the class loader of an entity which has redeployed .
+ * the least recently used one is evicted per type, so that {@link #getCapacity() capacity} bounds the count of templates of each type, not of
+ * the whole store, which holds at most the capacity times the count of types .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class Templates {
+
+  /** the system property to specify the capacity per type of {@link #shared()} . */
+  public static final String capacityProperty = Templates.class.getName() + ".capacity";
+
+  /** the store which shared in process . */
+  private static final Templates shared = new Templates(Integer.getInteger(capacityProperty, 512));
+
+  /**
+   * templates of a type .
+   *
+   * @author furplag
+   *
+   */
+  private static final class Region {
+
+    /** compiled templates, keyed by the shape of query . */
+    private final Map<Object, Template> templates;
+
+    /** the generation of the store which this region belongs to . */
+    private long generation;
+
+    /**
+     *
+     * @param capacity the maximum count of templates
+     * @param size the count of templates in the store
+     * @param evictions count of templates which evicted from the store
+     */
+    private Region(final int capacity, final AtomicInteger size, final LongAdder evictions) {
+      templates = new LinkedHashMap<>(16, .75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Template> eldest) {
+          final boolean evict = size() > capacity;
+          if (evict) {
+            size.decrementAndGet();
+            evictions.increment();
+          }
+
+          return evict;
+        }
+      };
+    }
+  }
+
+  /** the maximum count of templates per type . */
+  @Getter
+  private final int capacity;
+
+  /** templates per type . */
+  private final ClassValue<Region> regions = new ClassValue<>() {
+    @Override
+    protected Region computeValue(Class<?> type) {
+      return new Region(capacity, size, evictions);
+    }
+  };
+
+  /** count of {@link #clear()}, a region of older generation is discarded in next lookup . */
+  private volatile long generation;
+
+  /** the count of templates in the store . */
+  private final AtomicInteger size = new AtomicInteger();
+
+  /** count of lookups which resolved from the store . */
+  private final LongAdder hits = new LongAdder();
+
+  /** count of lookups which had to compile a template . */
+  private final LongAdder misses = new LongAdder();
+
+  /** count of templates which evicted from the store . */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   *
+   * @param capacity the maximum count of templates per type
+   */
+  public Templates(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(String.format("capacity must be positive, but %d .", capacity));
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * returns the store which shared in process .
+   *
+   * @return {@link Templates}
+   */
+  public static Templates shared() {
+    return shared;
+  }
+
+  /**
+   * returns the templates of the type, discards those if the store has cleared after stored .
+   *
+   * @param type the type which the shape belongs to
+   * @return {@link Region}, must be used in synchronized
+   */
+  private Region regionOf(final Class<?> type) {
+    final Region region = regions.get(Objects.requireNonNull(type));
+    if (region.generation != generation) {
+      region.templates.clear();
+      region.generation = generation;
+    }
+
+    return region;
+  }
+
+  /**
+   * returns the template of the shape, compiles it if not exists .
+   *
+   * @param shape the shape of query, must be implements {@link #equals(Object)}, and should not refer classes of application
+   * @param compiler compiles the template
+   * @return {@link Template}
+   * @see #get(Class, Object, Supplier)
+   */
+  public Template get(final Object shape, final Supplier<Template> compiler) {
+    return get(Template.class, shape, compiler);
+  }
+
+  /**
+   * returns the template of the shape, compiles it if not exists .
+   *
+   * @param type the type which the shape belongs to, e.g. the type of entity
+   * @param shape the shape of query, must be implements {@link #equals(Object)}
+   * @param compiler compiles the template
+   * @return {@link Template}
+   */
+  public Template get(final Class<?> type, final Object shape, final Supplier<Template> compiler) {
+    Objects.requireNonNull(shape);
+    final Region region = regions.get(Objects.requireNonNull(type));
+    synchronized (region) {
+      final Template template = regionOf(type).templates.get(shape);
+      if (Objects.nonNull(template)) {
+        hits.increment();
+
+        return template;
+      }
+    }
+    misses.increment();
+    final Template template = Objects.requireNonNull(compiler.get());
+    synchronized (region) {
+      final Template stored = regionOf(type).templates.putIfAbsent(shape, template);
+      if (Objects.isNull(stored)) {
+        size.incrementAndGet();
+      }
+
+      return Objects.requireNonNullElse(stored, template);
+    }
+  }
+
+  /** discards all templates . */
+  public synchronized void clear() {
+    generation++;
+    size.set(0);
+  }
+
+  /**
+   * returns the count of templates which evicted from the store .
+   *
+   * @return the count of templates which evicted from the store
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * returns the count of lookups which resolved from the store .
+   *
+   * @return the count of lookups which resolved from the store
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * returns the ratio of lookups which resolved from the store .
+   *
+   * @return the ratio of lookups which resolved from the store, or zero if never looked up
+   */
+  public double hitRate() {
+    final long hits = hits();
+    final long requests = hits + misses();
+
+    return requests < 1 ? 0d : (double) hits / requests;
+  }
+
+  /**
+   * returns the count of lookups which had to compile a template .
+   *
+   * @return the count of lookups which had to compile a template
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * returns the count of templates in the store .
+   *
+   * @return the count of templates in the store
+   */
+  public int size() {
+    return size.get();
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.generic;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+import jp.furplag.sandbox.reflect.Reflections;
+import jp.furplag.sandbox.stream.Streamr;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * reads the value of a column from an entity, through {@link MethodHandle} chain which resolved once per entity class .
+ * <p>
+ * the chain is one of the followings .
+ * </p>
+ * <ul>
+ * <li>entity &rarr; field</li>
+ * <li>entity &rarr; {@link org.seasar.doma.Embeddable} &rarr; field</li>
+ * <li>entity &rarr; {@link org.seasar.doma.Domain} &rarr; value</li>
+ * </ul>
+ *
+ * @author furplag
+ *
+ */
+@ToString(of = { "field" })
+public final class Accessor {
+
+  /** the type of {@link MethodHandle} which this accessor uses . */
+  private static final MethodType getterType = MethodType.methodType(Object.class, Object.class);
+
+  /** returns the owner of {@link #field} from an entity, or null if the owner is the entity itself . */
+  private final MethodHandle owner;
+
+  /** returns the value of {@link #field} from the owner . */
+  private final MethodHandle getter;
+
+  /** the field which actually holds the value, the field of entity, or the value of {@link org.seasar.doma.Domain} . */
+  @Getter
+  private final Field field;
+
+  /**
+   *
+   * @param entityClass the type of entity
+   * @param field a member of the entity which related to database column
+   */
+  Accessor(final Class<? extends Origin> entityClass, final Field field) {
+    if (Inspector.Predicates.isDomain(field)) {
+      owner = unreflect(field);
+      this.field = Reflections.getField(field.getType(), "value");
+    } else if (Inspector.Predicates.isEmbeddableField(field)) {
+      owner = unreflect(Streamr.Filter.filtering(Reflections.getFields(entityClass), (_field) -> _field.getType().equals(field.getDeclaringClass())).findFirst().orElse(null));
+      this.field = field;
+    } else {
+      owner = null;
+      this.field = field;
+    }
+    getter = unreflect(this.field);
+  }
+
+  /**
+   * returns a getter of the field .
+   *
+   * @param field the field
+   * @return {@link MethodHandle} typed (Object)Object
+   */
+  private static MethodHandle unreflect(final Field field) {
+    if (Objects.isNull(field)) {
+      return MethodHandles.dropArguments(MethodHandles.constant(Object.class, null), 0, Object.class);
+    }
+    try {
+      final MethodHandle getter = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup()).unreflectGetter(field);
+
+      return (Modifier.isStatic(field.getModifiers()) ? MethodHandles.dropArguments(getter, 0, Object.class) : getter).asType(getterType);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * invokes getter .
+   *
+   * @param getter {@link MethodHandle} typed (Object)Object
+   * @param mysterio the owner of the field
+   * @return the value of the field, or null if the owner is null
+   * @throws IllegalArgumentException if the owner does not hold the field
+   */
+  private static Object invoke(final MethodHandle getter, final Object mysterio) {
+    if (Objects.isNull(mysterio)) {
+      return null;
+    }
+    try {
+      return (Object) getter.invokeExact(mysterio);
+    } catch (ClassCastException e) {
+      throw new IllegalArgumentException(String.format("the instance of %s does not hold the field .", mysterio.getClass().getName()), e);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * returns the instance which holds the value, the entity itself, the {@link org.seasar.doma.Embeddable} or the {@link org.seasar.doma.Domain} .
+   *
+   * @param entity an instance of the entity
+   * @return the instance which holds the value
+   */
+  public Object getOwner(final Object entity) {
+    return Objects.isNull(owner) ? entity : invoke(owner, entity);
+  }
+
+  /**
+   * returns the value of the field .
+   *
+   * @param mysterio the instance which holds the value, returned by {@link #getOwner(Object)}
+   * @return the value of the field
+   */
+  public Object getValue(final Object mysterio) {
+    return invoke(getter, mysterio);
+  }
+}
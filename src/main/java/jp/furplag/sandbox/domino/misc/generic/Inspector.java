@@ -18,15 +18,19 @@ package jp.furplag.sandbox.domino.misc.generic;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -35,11 +39,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.seasar.doma.Column;
 import org.seasar.doma.Domain;
 import org.seasar.doma.Embeddable;
+import org.seasar.doma.GeneratedValue;
 import org.seasar.doma.Id;
 import org.seasar.doma.Table;
 import org.seasar.doma.Transient;
+import org.seasar.doma.Version;
 import org.seasar.doma.jdbc.entity.NamingType;
 import jp.furplag.sandbox.domino.misc.DomainsAware;
+import jp.furplag.sandbox.domino.misc.metrics.Events;
 import jp.furplag.sandbox.domino.misc.origin.Origin;
 import jp.furplag.sandbox.reflect.Reflections;
 import jp.furplag.sandbox.stream.Streamr;
@@ -97,19 +104,6 @@ public class Inspector<ENTITY extends Origin> {
       static Stream<Field> flatternyze(final Field field) {
         return Predicates.isEmbeddable(field) ? Streamr.Filter.filtering(Reflections.getFields(field.getType()), Predicates::isPersistive) : Stream.of(field);
       }
-
-      /**
-       * tests if the field matches any of values .
-       *
-       * @param field a member of the entity
-       * @param condition a condition for matching, eg. {@link Field#getName()}
-       * @param values values for matching, they must be implemets {@link #equals(Object)}
-       * @return true if the field matches any of values
-       */
-      @SafeVarargs
-      private static <T> boolean matches(final Field field, final Function<Field, ? extends T> condition, final T... values) {
-        return Streamr.stream(values).collect(Collectors.toSet()).contains(condition.apply(field));
-      }
     }
 
     /**
@@ -272,30 +266,23 @@ public class Inspector<ENTITY extends Origin> {
     }
 
     /**
-     * returns fields which related to a database column .
-     *
-     * @param classes the type of an entity and parents of
-     * @param condition a condition for exclusion, eg. {@link Field#getName()}
-     * @param excludeConditions values for exclusion, they must be implemets {@link #equals(Object)}
-     * @return fields which related to a database column
-     */
-    @SafeVarargs
-    private static <T> List<Field> getColumnFields(final Class<?>[] classes, final Function<Field, ? extends T> condition, T... excludeConditions) {
-      return getUniqueColumnFields(classes, condition, excludeConditions).sorted(Comparator.comparing((field) -> Predicates.isIdentity(field) ? -1 : 0)).collect(Collectors.toUnmodifiableList());
-    }
-
-
-    /**
-     * returns fields which related to a database column .
+     * returns fields which related to a database column keyed by the column name, in a single pass over the family of entity .
+     * <p>
+     * the first field wins if the column name duplicated, and the primary key (s) comes first .
+     * </p>
      *
      * @param classes the type of an entity and parents of
-     * @param condition a condition for exclusion, eg. {@link Field#getName()}
-     * @param excludeConditions values for exclusion, they must be implemets {@link #equals(Object)}
-     * @return fields which related to a database column
+     * @param namingType {@link NamingType} of the entity
+     * @return fields which related to a database column keyed by the column name
      */
-    @SafeVarargs
-    private static <T> Stream<Field> getUniqueColumnFields(final Class<?>[] classes, final Function<Field, ? extends T> condition, T... excludeConditions) {
-      return Columns.distinct(getAllColumnFields(classes).filter((field) -> !Columns.matches(field, condition, excludeConditions)), condition);
+    private static Map<String, Field> getColumns(final Class<?>[] classes, final NamingType namingType) {
+      final Map<String, Field> columns = new LinkedHashMap<>();
+      getAllColumnFields(classes).forEachOrdered((field) -> columns.putIfAbsent(Names.getName(field, namingType), field));
+      final Map<String, Field> sorted = new LinkedHashMap<>();
+      columns.entrySet().stream().filter((column) -> Predicates.isIdentity(column.getValue())).forEachOrdered((column) -> sorted.put(column.getKey(), column.getValue()));
+      columns.forEach(sorted::putIfAbsent);
+
+      return sorted;
     }
 
     /**
@@ -379,6 +366,16 @@ public class Inspector<ENTITY extends Origin> {
       return field.getDeclaringClass().isAnnotationPresent(Embeddable.class);
     }
 
+    /**
+     * tests if the value of the field is generated by the database ( {@link GeneratedValue @GeneratedValue} ) .
+     *
+     * @param field a member of the entity
+     * @return true if the value of the field is generated by the database
+     */
+    static boolean isGenerated(final Field field) {
+      return isAnnotated(field, GeneratedValue.class);
+    }
+
     /**
      * tests if the field is one of primary key .
      *
@@ -389,6 +386,16 @@ public class Inspector<ENTITY extends Origin> {
       return isAnnotated(field, Id.class);
     }
 
+    /**
+     * tests if the column of the field is included in insert statements ( {@link Column#insertable()} ) .
+     *
+     * @param field a member of the entity
+     * @return true if the column of the field is included in insert statements
+     */
+    static boolean isInsertable(final Field field) {
+      return Optional.ofNullable(field).map((t) -> t.getAnnotation(Column.class)).map(Column::insertable).orElse(true);
+    }
+
     /**
      * tests if the field does not related to a database column .
      *
@@ -408,6 +415,104 @@ public class Inspector<ENTITY extends Origin> {
     static boolean isPersistive(final Field field) {
       return Trebuchet.Predicates.orNot(field, Predicate.not(Predicates::isNotPersistive)::test);
     }
+
+    /**
+     * tests if the column of the field is included in update statements ( {@link Column#updatable()} ) .
+     *
+     * @param field a member of the entity
+     * @return true if the column of the field is included in update statements
+     */
+    static boolean isUpdatable(final Field field) {
+      return Optional.ofNullable(field).map((t) -> t.getAnnotation(Column.class)).map(Column::updatable).orElse(true);
+    }
+
+    /**
+     * tests if the field is the version for optimistic locking ( {@link Version @Version} ) .
+     *
+     * @param field a member of the entity
+     * @return true if the field is the version for optimistic locking
+     */
+    static boolean isVersion(final Field field) {
+      return isAnnotated(field, Version.class);
+    }
+  }
+
+  /**
+   * a process-wide store of {@link Inspector} which built once per entity class .
+   * <p>
+   * backed by {@link ClassValue}, so that each inspector is held by the entity class itself, and never pins the class loader of the entity
+   * (e.g. redeploying web applications) .
+   * </p>
+   *
+   * @author furplag
+   *
+   */
+  public static final class Registry {
+
+    /** inspectors per entity class . */
+    private static final ClassValue<Inspector<?>> inspectors = new ClassValue<>() {
+      @Override
+      @SuppressWarnings({ "unchecked", "rawtypes" })
+      protected Inspector<?> computeValue(Class<?> entityClass) {
+        misses.increment();
+        final Events.InspectorBuild event = new Events.InspectorBuild();
+        event.begin();
+        final Inspector<?> inspector = new Inspector(entityClass);
+        event.commit(entityClass, entityClass::getName, inspector.getFields().size());
+
+        return inspector;
+      }
+    };
+
+    /** count of all lookups . */
+    private static final LongAdder requests = new LongAdder();
+
+    /** count of lookups which had to build an inspector . */
+    private static final LongAdder misses = new LongAdder();
+
+    private Registry() {}
+
+    /**
+     * returns the inspector of specified entity class, build it if not exists .
+     *
+     * @param <ENTITY> the type of entity
+     * @param entityClass the type of entity
+     * @return an inspector
+     */
+    @SuppressWarnings({ "unchecked" })
+    private static <ENTITY extends Origin> Inspector<ENTITY> get(final Class<ENTITY> entityClass) {
+      final Inspector<ENTITY> inspector = (Inspector<ENTITY>) inspectors.get(Objects.requireNonNull(entityClass));
+      requests.increment();
+
+      return inspector;
+    }
+
+    /**
+     * returns the count of lookups which resolved from the registry .
+     *
+     * @return the count of lookups which resolved from the registry
+     */
+    public static long hits() {
+      return Math.max(0, requests.sum() - misses.sum());
+    }
+
+    /**
+     * returns the count of lookups which had to build an inspector .
+     *
+     * @return the count of lookups which had to build an inspector
+     */
+    public static long misses() {
+      return misses.sum();
+    }
+
+    /**
+     * discards the inspector of specified entity class, it will be rebuilt at the next lookup .
+     *
+     * @param entityClass the type of entity
+     */
+    public static void remove(final Class<? extends Origin> entityClass) {
+      Trebuchet.Consumers.orNot(entityClass, inspectors::remove);
+    }
   }
 
   /** the type of an entity which has referred by this inspector . */
@@ -425,22 +530,92 @@ public class Inspector<ENTITY extends Origin> {
   @Getter
   private final List<Field> fields;
 
+  /** the name of table which converted in the rule of database naming . */
+  private final String name;
+
+  /** accessors of the fields, resolved lazily . */
+  private final Map<Field, Accessor> accessors = new ConcurrentHashMap<>();
+
+  /** the fields keyed by the name of field in lower case . */
+  private final Map<String, Field> fieldsByName;
+
+  /** the column names keyed by the field . */
+  private final Map<Field, String> columnNames;
+
+  /** the fields keyed by the column name in lower case . */
+  private final Map<String, Field> fieldsByColumnName;
+
   private Inspector(Class<ENTITY> entityClass) {
     this.entityClass = Objects.requireNonNull(entityClass);
-    classes = Collections.unmodifiableList(Entities.familyze(entityClass));
-    namingType = Entities.Names.getNamingType(getClasses().toArray(Class<?>[]::new)).orElse(NamingType.NONE);
-    fields = Entities.getColumnFields(getClasses().toArray(Class<?>[]::new), (field) -> Entities.Names.getName(field, Entities.Names.getNamingType(getClasses().toArray(Class<?>[]::new)).orElse(NamingType.NONE)));
+    final Optional<Metamodel> metamodel = Metamodel.of(entityClass).filter((t) -> entityClass.equals(t.getEntityClass()));
+    final List<Field> resolved = metamodel.map(Inspector::resolve).orElse(null);
+    final List<String> names;
+    if (Objects.nonNull(resolved)) {
+      classes = List.copyOf(metamodel.get().getClasses());
+      namingType = metamodel.get().getNamingType();
+      fields = resolved;
+      name = metamodel.get().getName();
+      names = metamodel.get().getColumns().stream().map(Metamodel.Column::getName).collect(Collectors.toList());
+    } else {
+      classes = Collections.unmodifiableList(Entities.familyze(entityClass));
+      final Class<?>[] family = getClasses().toArray(Class<?>[]::new);
+      namingType = Entities.Names.getNamingType(family).orElse(NamingType.NONE);
+      final Map<String, Field> columns = Entities.getColumns(family, namingType);
+      fields = List.copyOf(columns.values());
+      name = Entities.Names.getName(entityClass);
+      names = List.copyOf(columns.keySet());
+    }
+    final Map<String, Field> fieldsByName = new HashMap<>();
+    final Map<Field, String> columnNames = new HashMap<>();
+    final Map<String, Field> fieldsByColumnName = new HashMap<>();
+    for (int i = 0; i < fields.size(); i++) {
+      fieldsByName.putIfAbsent(fields.get(i).getName().toLowerCase(Locale.ROOT), fields.get(i));
+      columnNames.putIfAbsent(fields.get(i), names.get(i));
+      fieldsByColumnName.putIfAbsent(names.get(i).toLowerCase(Locale.ROOT), fields.get(i));
+    }
+    this.fieldsByName = Collections.unmodifiableMap(fieldsByName);
+    this.columnNames = Collections.unmodifiableMap(columnNames);
+    this.fieldsByColumnName = Collections.unmodifiableMap(fieldsByColumnName);
   }
 
   /**
-   * a static factory of {@link Inspector} .
+   * returns the fields which related to the columns of generated metamodel .
+   *
+   * @param metamodel {@link Metamodel}
+   * @return the fields, or null if the metamodel is stale
+   */
+  private static List<Field> resolve(final Metamodel metamodel) {
+    try {
+      final List<Field> fields = new ArrayList<>();
+      for (Metamodel.Column column : metamodel.getColumns()) {
+        fields.add(column.getField());
+      }
+
+      return Collections.unmodifiableList(fields);
+    } catch (NoSuchFieldException | SecurityException e) {
+      return null;
+    }
+  }
+
+  /**
+   * a static factory of {@link Inspector}, returns the one which shared in process .
    *
    * @param <ENTITY> the type of entity
    * @param entityClass the type of entity .
    * @return an inspector
    */
   public static <ENTITY extends Origin> Inspector<ENTITY> of(final Class<ENTITY> entityClass) {
-    return new Inspector<>(entityClass);
+    return Registry.get(entityClass);
+  }
+
+  /**
+   * returns the accessor of the field which related to a database column, resolved once per field .
+   *
+   * @param field a member of the entity
+   * @return {@link Accessor}
+   */
+  public final Accessor getAccessor(final Field field) {
+    return accessors.computeIfAbsent(Objects.requireNonNull(field), (_field) -> new Accessor(entityClass, _field));
   }
 
   /**
@@ -450,11 +625,21 @@ public class Inspector<ENTITY extends Origin> {
    * @return fields which related to a database column
    */
   public final Field getField(String fieldName) {
-    return Streamr.Filter.filtering(getFields(), (field) -> field.getName().equalsIgnoreCase(Objects.toString(fieldName, null))).findFirst().orElse(null);
+    return Objects.isNull(fieldName) ? null : fieldsByName.get(fieldName.toLowerCase(Locale.ROOT));
   }
 
   /**
-   * returns fields which related to a database column .
+   * returns the field which related to the database column .
+   *
+   * @param columnName the name of database column, case insensitive
+   * @return the field which related to the database column, or null if not found
+   */
+  public final Field getFieldByColumnName(String columnName) {
+    return Objects.isNull(columnName) ? null : fieldsByColumnName.get(columnName.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * returns fields which related to a database column, picked from {@link #getFields()} without scanning the entity again .
    *
    * @param condition a condition for exclusion, eg. {@link Field#getName()}
    * @param excludeConditions values for exclusion, they must be implemets {@link #equals(Object)}
@@ -462,7 +647,9 @@ public class Inspector<ENTITY extends Origin> {
    */
   @SafeVarargs
   public final <T> List<Field> getFields(Function<Field, ? extends T> condition, T... excludeConditions) {
-    return Entities.getColumnFields(getClasses().toArray(Class<?>[]::new), condition, excludeConditions);
+    final Set<T> excludes = Streamr.stream(excludeConditions).collect(Collectors.toSet());
+
+    return Entities.Columns.distinct(fields.stream().filter((field) -> !excludes.contains(condition.apply(field))), condition).collect(Collectors.toUnmodifiableList());
   }
 
   /**
@@ -471,7 +658,7 @@ public class Inspector<ENTITY extends Origin> {
    * @return the name which converted in the rule of database naming
    */
   public final String getName() {
-    return Entities.Names.getName(entityClass);
+    return name;
   }
 
   /**
@@ -481,6 +668,8 @@ public class Inspector<ENTITY extends Origin> {
    * @return the name which converted in the rule of database naming
    */
   public final String getName(Field field) {
-    return Entities.Names.getName(field, getNamingType());
+    final String columnName = Objects.isNull(field) ? null : columnNames.get(field);
+
+    return Objects.nonNull(columnName) ? columnName : Entities.Names.getName(field, getNamingType());
   }
 }
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.generic;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Optional;
+import org.seasar.doma.jdbc.entity.NamingType;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+import lombok.Value;
+
+/**
+ * a static structure of the {@link org.seasar.doma.Entity}, which generated in compile time by {@link MetamodelProcessor} .
+ *
+ * @author furplag
+ *
+ */
+public interface Metamodel {
+
+  /**
+   * a column of the entity .
+   *
+   * @author furplag
+   *
+   */
+  @Value(staticConstructor = "of")
+  public static class Column {
+
+    /** the class which declares the field, the entity (or parent of) or an {@link org.seasar.doma.Embeddable} . */
+    Class<?> declaringClass;
+
+    /** the name of field . */
+    String fieldName;
+
+    /** the name of database column . */
+    String name;
+
+    /** true if the field is one of primary key . */
+    boolean identity;
+
+    /**
+     * returns the field which related to this column .
+     *
+     * @return the field which related to this column
+     * @throws NoSuchFieldException if the field not found, maybe the metamodel is stale
+     */
+    public Field getField() throws NoSuchFieldException {
+      return declaringClass.getDeclaredField(fieldName);
+    }
+  }
+
+  /** the suffix of the name of generated metamodel . */
+  static final String suffix = "_Metamodel";
+
+  /**
+   * returns the name of the metamodel of specified entity class .
+   *
+   * @param entityClass the class of entity
+   * @return the name of the metamodel
+   */
+  static String nameOf(final Class<?> entityClass) {
+    return nameOf(entityClass.getPackageName(), entityClass.getName());
+  }
+
+  /**
+   * returns the name of the metamodel of specified entity class .
+   *
+   * @param packageName the package name of entity
+   * @param binaryName the binary name of entity class
+   * @return the name of the metamodel
+   */
+  static String nameOf(final String packageName, final String binaryName) {
+    final String simpleName = String.join("", "_", binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace("$", "__"), suffix);
+
+    return packageName.isEmpty() ? simpleName : String.join(".", packageName, simpleName);
+  }
+
+  /**
+   * returns the metamodel of specified entity class, if generated .
+   *
+   * @param entityClass the class of entity
+   * @return the metamodel of specified entity class
+   */
+  static Optional<Metamodel> of(final Class<? extends Origin> entityClass) {
+    try {
+      final Class<?> metamodelClass = Class.forName(nameOf(entityClass), true, entityClass.getClassLoader());
+
+      return Metamodel.class.isAssignableFrom(metamodelClass) ? Optional.of((Metamodel) metamodelClass.getDeclaredConstructor().newInstance()) : Optional.empty();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * returns the class of entity .
+   *
+   * @return the class of entity
+   */
+  Class<?> getEntityClass();
+
+  /**
+   * returns the types a family of the entity, annotated with {@link org.seasar.doma.Entity @Entity} .
+   *
+   * @return the types a family of the entity
+   */
+  List<Class<?>> getClasses();
+
+  /**
+   * returns the rule of database naming .
+   *
+   * @return the rule of database naming
+   */
+  NamingType getNamingType();
+
+  /**
+   * returns the table name .
+   *
+   * @return the table name
+   */
+  String getName();
+
+  /**
+   * returns the columns of the entity, which flattened {@link org.seasar.doma.Embeddable} and ordered primary key first .
+   *
+   * @return the columns of the entity
+   */
+  List<Column> getColumns();
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.generic;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import org.apache.commons.lang3.StringUtils;
+import org.seasar.doma.Column;
+import org.seasar.doma.Embeddable;
+import org.seasar.doma.Entity;
+import org.seasar.doma.Id;
+import org.seasar.doma.Table;
+import org.seasar.doma.Transient;
+import org.seasar.doma.jdbc.entity.NamingType;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+
+/**
+ * generates {@link Metamodel} of each {@link Entity @Entity} which implements {@link Origin}, in the same rule of {@link Inspector} .
+ * <p>
+ * add this artifact to the annotation processor path ( next to DOMA ), then {@link Inspector} uses generated metamodel instead of
+ * reflection .
+ * the processor also writes the index of entities ( {@link Warmup#index} ), which {@link Warmup} reads .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+@SupportedAnnotationTypes({ "org.seasar.doma.Entity" })
+public class MetamodelProcessor extends AbstractProcessor {
+
+  /** the binary names of entities, which writes to {@link Warmup#index} . */
+  private final Set<String> entities = new TreeSet<>();
+
+  /** {@inheritDoc} */
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    final TypeElement origin = processingEnv.getElementUtils().getTypeElement(Origin.class.getName());
+    if (Objects.nonNull(origin)) {
+      // @formatter:off
+      ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(Entity.class)).stream()
+        .filter((t) -> ElementKind.CLASS.equals(t.getKind()))
+        .filter((t) -> processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(t.asType()), processingEnv.getTypeUtils().erasure(origin.asType())))
+        .peek((t) -> entities.add(processingEnv.getElementUtils().getBinaryName(t).toString()))
+        .forEach(this::generate);
+      // @formatter:on
+    }
+    if (roundEnv.processingOver() && !entities.isEmpty()) {
+      index();
+    }
+
+    return false;
+  }
+
+  /**
+   * writes the binary names of entities to {@link Warmup#index} .
+   */
+  private void index() {
+    try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", Warmup.index).openWriter())) {
+      writer.printf("# generated by %s%n", getClass().getName());
+      entities.forEach(writer::println);
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+    }
+  }
+
+  /**
+   * generates the metamodel of the entity .
+   *
+   * @param entity the type of entity
+   */
+  private void generate(final TypeElement entity) {
+    final List<TypeElement> classes = familyze(entity);
+    final NamingType namingType = classes.stream().map((t) -> t.getAnnotation(Entity.class).naming()).filter((t) -> !NamingType.NONE.equals(t)).findFirst().orElse(NamingType.NONE);
+    final String name = StringUtils.defaultIfBlank(Objects.toString(entity.getAnnotation(Table.class) == null ? null : entity.getAnnotation(Table.class).name(), null), namingType.apply(entity.getSimpleName().toString()));
+    final Map<String, VariableElement> columns = new LinkedHashMap<>();
+    classes.stream().flatMap(this::getFields).flatMap(this::flatternyze).filter(this::isPersistive).forEach((field) -> columns.putIfAbsent(getName(field, namingType), field));
+    final List<Map.Entry<String, VariableElement>> sorted = columns.entrySet().stream().sorted(Comparator.comparing((column) -> isIdentity(column.getValue()) ? -1 : 0)).collect(Collectors.toList());
+
+    final String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+    if (Stream.concat(classes.stream(), sorted.stream().map((column) -> (TypeElement) column.getValue().getEnclosingElement())).anyMatch((t) -> !isAccessible(t, packageName))) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "metamodel skipped, not accessible from the package .", entity);
+
+      return;
+    }
+    final String metamodelName = Metamodel.nameOf(packageName, processingEnv.getElementUtils().getBinaryName(entity).toString());
+    try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createSourceFile(metamodelName, entity).openWriter())) {
+      if (!packageName.isEmpty()) {
+        writer.printf("package %s;%n%n", packageName);
+      }
+      writer.printf("@javax.annotation.processing.Generated(\"%s\")%n", getClass().getName());
+      writer.printf("public final class %s implements %s {%n%n", metamodelName.substring(metamodelName.lastIndexOf('.') + 1), Metamodel.class.getCanonicalName());
+      writer.printf("  private static final java.util.List<Class<?>> classes = java.util.List.of(%s);%n%n", classes.stream().map((t) -> String.format("%s.class", t.getQualifiedName())).collect(Collectors.joining(", ")));
+      writer.printf("  private static final java.util.List<%s> columns = java.util.List.of(", Metamodel.Column.class.getCanonicalName());
+      writer.print(sorted.stream().map((column) -> String.format("%n    %s.of(%s.class, \"%s\", \"%s\", %s)", Metamodel.Column.class.getCanonicalName(), ((TypeElement) column.getValue().getEnclosingElement()).getQualifiedName(), column.getValue().getSimpleName(), escape(column.getKey()), isIdentity(column.getValue()))).collect(Collectors.joining(",")));
+      writer.printf(");%n%n");
+      writer.printf("  @Override%n  public Class<?> getEntityClass() {%n    return %s.class;%n  }%n%n", entity.getQualifiedName());
+      writer.printf("  @Override%n  public java.util.List<Class<?>> getClasses() {%n    return classes;%n  }%n%n");
+      writer.printf("  @Override%n  public %s getNamingType() {%n    return %s.%s;%n  }%n%n", NamingType.class.getCanonicalName(), NamingType.class.getCanonicalName(), namingType.name());
+      writer.printf("  @Override%n  public String getName() {%n    return \"%s\";%n  }%n%n", escape(name));
+      writer.printf("  @Override%n  public java.util.List<%s> getColumns() {%n    return columns;%n  }%n}%n", Metamodel.Column.class.getCanonicalName());
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), entity);
+    }
+  }
+
+  /**
+   * escapes the text for string literal .
+   *
+   * @param text text
+   * @return escaped text
+   */
+  private static String escape(final String text) {
+    return Objects.toString(text, "").replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  /**
+   * returns list of a family of this entity, in the same rule of {@link Inspector.Entities#familyze(Class)} .
+   *
+   * @param entity the type of entity
+   * @return list of a family of this entity
+   */
+  private List<TypeElement> familyze(final TypeElement entity) {
+    final List<TypeElement> classes = new ArrayList<>();
+    for (TypeElement type = entity; Objects.nonNull(type); type = getSuperclass(type)) {
+      if (Objects.nonNull(type.getAnnotation(Entity.class))) {
+        classes.add(type);
+      }
+    }
+
+    return classes;
+  }
+
+  /**
+   * returns the fields which declared in the type and its parents, in the same order of reflection .
+   *
+   * @param type the type
+   * @return stream of fields
+   */
+  private Stream<VariableElement> getFields(final TypeElement type) {
+    return Stream.iterate(type, Objects::nonNull, this::getSuperclass).flatMap((t) -> ElementFilter.fieldsIn(t.getEnclosedElements()).stream());
+  }
+
+  /**
+   * returns the name of column, in the same rule of {@link Inspector.Entities.Names#getName(java.lang.reflect.Field, NamingType)} .
+   *
+   * @param field the field
+   * @param namingType the rule of database naming
+   * @return the name of column
+   */
+  private static String getName(final VariableElement field, final NamingType namingType) {
+    return StringUtils.defaultIfBlank(Objects.isNull(field.getAnnotation(Column.class)) ? null : field.getAnnotation(Column.class).name(), namingType.apply(field.getSimpleName().toString()));
+  }
+
+  /**
+   * returns the parent class of the type .
+   *
+   * @param type the type
+   * @return the parent class, or null if the parent is {@link Object}
+   */
+  private TypeElement getSuperclass(final TypeElement type) {
+    final TypeMirror superclass = type.getSuperclass();
+    if (!TypeKind.DECLARED.equals(superclass.getKind())) {
+      return null;
+    }
+    final TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+
+    return Object.class.getName().equals(element.getQualifiedName().toString()) ? null : element;
+  }
+
+  /**
+   * returns the field (s) actually related to database column, in the same rule of {@link Inspector.Entities.Columns#flatternyze(java.lang.reflect.Field)} .
+   *
+   * @param field the field
+   * @return the field (s) actually related to database column
+   */
+  private Stream<VariableElement> flatternyze(final VariableElement field) {
+    final Element type = TypeKind.DECLARED.equals(field.asType().getKind()) ? ((DeclaredType) field.asType()).asElement() : null;
+
+    return Objects.nonNull(type) && Objects.nonNull(type.getAnnotation(Embeddable.class)) ? getFields((TypeElement) type).filter(this::isPersistive) : Stream.of(field);
+  }
+
+  /**
+   * tests whether the generated metamodel could refer the type .
+   *
+   * @param type the type
+   * @param packageName the package of generated metamodel
+   * @return true if the type is accessible from the package
+   */
+  private boolean isAccessible(final TypeElement type, final String packageName) {
+    final boolean samePackage = packageName.equals(processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString());
+    for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+      if (element.getModifiers().contains(Modifier.PRIVATE) || !samePackage && !element.getModifiers().contains(Modifier.PUBLIC)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * tests if the field is one of primary key .
+   *
+   * @param field the field
+   * @return true if the field is one of primary key
+   */
+  private boolean isIdentity(final VariableElement field) {
+    return Objects.nonNull(field.getAnnotation(Id.class));
+  }
+
+  /**
+   * tests if the field is related to a database column, in the same rule of {@link Inspector.Predicates#isPersistive(java.lang.reflect.Field)} .
+   *
+   * @param field the field
+   * @return true if the field is related to a database column
+   */
+  private boolean isPersistive(final VariableElement field) {
+    return !field.getModifiers().contains(Modifier.STATIC) && Objects.isNull(field.getAnnotation(Transient.class));
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.generic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import jp.furplag.sandbox.domino.misc.origin.Conditionally;
+import jp.furplag.sandbox.domino.misc.origin.Criteria;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+import jp.furplag.sandbox.trebuchet.Trebuchet;
+import lombok.Value;
+
+/**
+ * builds {@link Inspector} and compiled select query of entities eagerly, to get rid of the cost of the first requests .
+ * <p>
+ * entities are discovered from the index which {@link MetamodelProcessor} generates, or by scanning packages .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class Warmup {
+
+  /** the path of the index of entities, which lists the binary name of the entity per line . */
+  public static final String index = "META-INF/domino-fragment-origin/entities";
+
+  /**
+   * the result of warm-up .
+   *
+   * @author furplag
+   *
+   */
+  @Value
+  public static class Report {
+
+    /** entities which warmed up . */
+    List<Class<? extends Origin>> entities;
+
+    /** the cause of failure, keyed by the name of class . */
+    Map<String, Throwable> failures;
+
+    /** the time which warm-up took . */
+    Duration elapsed;
+  }
+
+  private Warmup() {}
+
+  /**
+   * warms up the entities which listed in the index, in parallel on the common pool .
+   *
+   * @param classLoader {@link ClassLoader} which reads the index and loads entities
+   * @return {@link Report}
+   */
+  public static Report fromIndex(final ClassLoader classLoader) {
+    return warmup(index(classLoader), classLoader, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * warms up the entities in the packages, in parallel on the common pool .
+   *
+   * @param classLoader {@link ClassLoader} which loads entities
+   * @param packageNames the name of packages, includes sub packages
+   * @return {@link Report}
+   */
+  public static Report fromPackages(final ClassLoader classLoader, final String... packageNames) {
+    return warmup(scan(classLoader, packageNames), classLoader, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * warms up the classes in parallel, classes which are not an entity are ignored .
+   *
+   * @param classNames the binary name of classes
+   * @param classLoader {@link ClassLoader} which loads entities
+   * @param pool {@link ForkJoinPool}
+   * @return {@link Report}
+   */
+  public static Report warmup(final Collection<String> classNames, final ClassLoader classLoader, final ForkJoinPool pool) {
+    final long started = System.nanoTime();
+    final Set<Class<? extends Origin>> entities = ConcurrentHashMap.newKeySet();
+    final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+    // @formatter:off
+    final List<ForkJoinTask<?>> tasks = new LinkedHashSet<>(Objects.requireNonNullElse(classNames, List.<String>of())).stream()
+      .map((className) -> pool.submit(() -> {
+        try {
+          Trebuchet.Consumers.orNot(warmup(className, classLoader), entities::add);
+        } catch (Exception | LinkageError e) {
+          failures.put(className, e);
+        }
+      }))
+      .collect(Collectors.toList());
+    // @formatter:on
+    tasks.forEach(ForkJoinTask::join);
+    final List<Class<? extends Origin>> warmed = entities.stream().sorted(Comparator.comparing(Class::getName)).collect(Collectors.toUnmodifiableList());
+
+    return new Report(warmed, Collections.unmodifiableMap(failures), Duration.ofNanos(System.nanoTime() - started));
+  }
+
+  /**
+   * builds the inspector, the accessors and the compiled select query of the entity .
+   *
+   * @param className the binary name of class
+   * @param classLoader {@link ClassLoader} which loads entities
+   * @return the type of entity, or null if the class is not an entity
+   * @throws ClassNotFoundException the class not found
+   */
+  private static Class<? extends Origin> warmup(final String className, final ClassLoader classLoader) throws ClassNotFoundException {
+    final Class<?> type = Class.forName(className, false, classLoader);
+    if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || !Origin.class.isAssignableFrom(type) || !Inspector.Entities.isEntity(type)) {
+      return null;
+    }
+    final Class<? extends Origin> entityClass = type.asSubclass(Origin.class);
+    final Inspector<? extends Origin> inspector = Inspector.of(entityClass);
+    inspector.getFields().forEach(inspector::getAccessor);
+    final Origin entity = instantiate(entityClass);
+    if (entity instanceof Conditionally) {
+      Criteria.of((Conditionally) entity);
+    } else if (Objects.nonNull(entity)) {
+      entity.selectClause();
+    }
+
+    return entityClass;
+  }
+
+  /**
+   * returns an instance of the entity .
+   *
+   * @param entityClass the type of entity
+   * @return an instance of the entity, or null if the entity has no accessible constructor without arguments
+   */
+  private static Origin instantiate(final Class<? extends Origin> entityClass) {
+    try {
+      final Constructor<? extends Origin> constructor = entityClass.getDeclaredConstructor();
+
+      return Modifier.isPublic(constructor.getModifiers()) && Modifier.isPublic(entityClass.getModifiers()) ? constructor.newInstance() : null;
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * returns the binary names of entities, which listed in the index .
+   *
+   * @param classLoader {@link ClassLoader} which reads the index
+   * @return the binary names of entities
+   */
+  public static List<String> index(final ClassLoader classLoader) {
+    final Set<String> classNames = new LinkedHashSet<>();
+    try {
+      final Enumeration<URL> resources = Objects.requireNonNull(classLoader).getResources(index);
+      while (resources.hasMoreElements()) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resources.nextElement().openStream(), StandardCharsets.UTF_8))) {
+          reader.lines().map(String::trim).filter((line) -> !line.isEmpty() && !line.startsWith("#")).forEach(classNames::add);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return new ArrayList<>(classNames);
+  }
+
+  /**
+   * returns the binary names of classes in the packages .
+   *
+   * @param classLoader {@link ClassLoader} which finds the packages
+   * @param packageNames the name of packages, includes sub packages
+   * @return the binary names of classes
+   */
+  public static List<String> scan(final ClassLoader classLoader, final String... packageNames) {
+    final Set<String> classNames = new LinkedHashSet<>();
+    try {
+      for (String packageName : Objects.requireNonNullElse(packageNames, new String[] {})) {
+        final String path = Objects.toString(packageName, "").replace('.', '/');
+        final Enumeration<URL> resources = Objects.requireNonNull(classLoader).getResources(path);
+        while (resources.hasMoreElements()) {
+          final URL url = resources.nextElement();
+          if ("file".equals(url.getProtocol())) {
+            final Path root = Paths.get(url.toURI());
+            try (Stream<Path> paths = Files.walk(root)) {
+              paths.map((t) -> root.relativize(t).toString().replace(root.getFileSystem().getSeparator(), "/")).map((t) -> path.isEmpty() ? t : path + "/" + t).filter(Warmup::isClassFile).map(Warmup::toClassName).forEach(classNames::add);
+            }
+          } else if ("jar".equals(url.getProtocol())) {
+            final JarURLConnection connection = (JarURLConnection) url.openConnection();
+            connection.setUseCaches(false);
+            try (JarFile jar = connection.getJarFile()) {
+              jar.stream().map((t) -> t.getName()).filter((t) -> t.startsWith(path.isEmpty() ? "" : path + "/")).filter(Warmup::isClassFile).map(Warmup::toClassName).forEach(classNames::add);
+            }
+          }
+        }
+      }
+    } catch (IOException | URISyntaxException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return new ArrayList<>(classNames);
+  }
+
+  /**
+   * tests if the path is a class file .
+   *
+   * @param path the path of resource
+   * @return true if the path is a class file
+   */
+  private static boolean isClassFile(final String path) {
+    return path.endsWith(".class") && !path.endsWith("module-info.class") && !path.endsWith("package-info.class");
+  }
+
+  /**
+   * returns the binary name of class .
+   *
+   * @param path the path of class file
+   * @return the binary name of class
+   */
+  private static String toClassName(final String path) {
+    return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.metrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of constructing and executing SQL fragments .
+ * <p>
+ * each event is created and committed only if the recording has enabled it, so that the cost is almost nothing in disabled . use like
+ * below . events of queries report the hash of {@link jp.furplag.sandbox.domino.misc.origin.Criteria#getShape()}, so that rendering and
+ * executing the same query have the same hash .
+ * </p>
+ *
+ * <pre>
+ * final Events.SelectRender event = new Events.SelectRender();
+ * event.begin();
+ * // rendering .
+ * event.commit(entityClass, criteria::getShape, values);
+ * </pre>
+ *
+ * @author furplag
+ *
+ */
+public final class Events {
+
+  /** the prefix of the name of events . */
+  private static final String prefix = "jp.furplag.sandbox.domino.";
+
+  /**
+   * the fields of events .
+   *
+   * @author furplag
+   *
+   */
+  @Category({ "Domino", "Fragment" })
+  @StackTrace(false)
+  public static abstract class FragmentEvent extends Event {
+
+    /** the type of entity . */
+    @Label("Entity Class")
+    Class<?> entityClass;
+
+    /** the hash of the shape of query, {@link jp.furplag.sandbox.domino.misc.origin.Criteria#getShape()} for the query of entities . */
+    @Label("Shape Hash")
+    int shapeHash;
+
+    /** the count of parameters . */
+    @Label("Parameter Count")
+    int parameterCount;
+
+    /**
+     * ends the event, and commits it if the recording needs .
+     *
+     * @param entityClass the type of entity
+     * @param shape returns the shape of query, called only if the recording needs
+     * @param parameterCount the count of parameters
+     */
+    public final void commit(final Class<?> entityClass, final Supplier<?> shape, final int parameterCount) {
+      end();
+      if (shouldCommit()) {
+        this.entityClass = entityClass;
+        shapeHash = hashOf(shape);
+        this.parameterCount = parameterCount;
+        commit();
+      }
+    }
+
+    /**
+     * ends the event, and commits it if the recording needs .
+     *
+     * @param entityClass the type of entity
+     * @param shape returns the shape of query, called only if the recording needs
+     * @param values the values of placeholder, counts only if the recording needs
+     */
+    public final void commit(final Class<?> entityClass, final Supplier<?> shape, final List<?> values) {
+      end();
+      if (shouldCommit()) {
+        this.entityClass = entityClass;
+        shapeHash = hashOf(shape);
+        parameterCount = parameterCount(values);
+        commit();
+      }
+    }
+  }
+
+  /** building {@link jp.furplag.sandbox.domino.misc.generic.Inspector}, the parameter count is the count of columns . */
+  @Name(prefix + "InspectorBuild")
+  @Label("Inspector Build")
+  @Description("building the metadata of an entity .")
+  public static final class InspectorBuild extends FragmentEvent {}
+
+  /** rendering where clause of {@link jp.furplag.sandbox.domino.misc.origin.Conditionally} . */
+  @Name(prefix + "WhereRender")
+  @Label("Where Render")
+  @Description("rendering the conditions of a query .")
+  public static final class WhereRender extends FragmentEvent {}
+
+  /** rendering whole of the query of an entity . */
+  @Name(prefix + "SelectRender")
+  @Label("Select Render")
+  @Description("rendering the query of an entity .")
+  public static final class SelectRender extends FragmentEvent {}
+
+  /** executing the query, and consuming the result . */
+  @Name(prefix + "QueryExecute")
+  @Label("Query Execute")
+  @Description("executing a query and consuming the result .")
+  public static final class QueryExecute extends FragmentEvent {}
+
+  private Events() {}
+
+  /**
+   * returns the hash of the shape of query .
+   *
+   * @param shape returns the shape of query
+   * @return the hash of the shape, or zero if the shape is null
+   */
+  static int hashOf(final Supplier<?> shape) {
+    return Objects.hashCode(shape == null ? null : shape.get());
+  }
+
+  /**
+   * returns the count of parameters, which the values bind .
+   *
+   * @param values the values of placeholder, a {@link Collection} for the placeholder of parameters
+   * @return the count of parameters
+   */
+  static int parameterCount(final List<?> values) {
+    int count = 0;
+    for (Object value : values) {
+      count += value instanceof Collection ? ((Collection<?>) value).size() : 1;
+    }
+
+    return count;
+  }
+}
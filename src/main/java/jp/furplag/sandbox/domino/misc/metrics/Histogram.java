@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a lock-free histogram of non-negative values in log-linear buckets, the same layout as HdrHistogram .
+ * <p>
+ * values under {@link #subBucketCount} are counted exactly, and larger values are counted in buckets which width is less than 1/64 of the
+ * value, so that the percentile is accurate within about 1.6 % . values over {@link #highestTrackableValue} are counted as that value .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class Histogram {
+
+  /** the count of bits which the bucket resolves . */
+  private static final int subBucketBits = 7;
+
+  /** the count of buckets which counts values exactly . */
+  static final int subBucketCount = 1 << subBucketBits;
+
+  /** the count of buckets per power of two . */
+  private static final int subBucketHalfCount = subBucketCount >>> 1;
+
+  /** the maximum value which counts in its own bucket ( about 2.4 hours in nanoseconds ) . */
+  static final long highestTrackableValue = (1L << 43) - 1;
+
+  /** count of values per bucket . */
+  private final AtomicLongArray counts = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+
+  /** count of values . */
+  private final LongAdder count = new LongAdder();
+
+  /** sum of values . */
+  private final LongAdder sum = new LongAdder();
+
+  /** minimum of values . */
+  private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+  /** maximum of values . */
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+  /**
+   * returns the index of bucket which counts the value .
+   *
+   * @param value the value
+   * @return the index of bucket
+   */
+  static int indexOf(final long value) {
+    if (value < subBucketCount) {
+      return (int) value;
+    }
+    final int shift = (63 - Long.numberOfLeadingZeros(value)) - (subBucketBits - 1);
+
+    return subBucketCount + (shift - 1) * subBucketHalfCount + (int) ((value >>> shift) - subBucketHalfCount);
+  }
+
+  /**
+   * returns the highest value which counts in the bucket .
+   *
+   * @param index the index of bucket
+   * @return the highest value which counts in the bucket
+   */
+  static long highestValueOf(final int index) {
+    if (index < subBucketCount) {
+      return index;
+    }
+    final int shift = (index - subBucketCount) / subBucketHalfCount + 1;
+    final long subBucket = (index - subBucketCount) % subBucketHalfCount + subBucketHalfCount;
+
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * counts the value .
+   *
+   * @param value the value, negative is counted as zero
+   */
+  public void record(final long value) {
+    final long _value = Math.min(Math.max(value, 0L), highestTrackableValue);
+    counts.incrementAndGet(indexOf(_value));
+    count.increment();
+    sum.add(_value);
+    min.accumulate(_value);
+    max.accumulate(_value);
+  }
+
+  /**
+   * returns the count of values .
+   *
+   * @return the count of values
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * returns the maximum of values .
+   *
+   * @return the maximum of values, or zero if never counted
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * returns the mean of values .
+   *
+   * @return the mean of values, or zero if never counted
+   */
+  public double getMean() {
+    final long count = getCount();
+
+    return count < 1 ? 0d : (double) sum.sum() / count;
+  }
+
+  /**
+   * returns the minimum of values .
+   *
+   * @return the minimum of values, or zero if never counted
+   */
+  public long getMin() {
+    return getCount() < 1 ? 0L : min.get();
+  }
+
+  /**
+   * returns the value at the percentile, the highest value which equivalent to the bucket .
+   *
+   * @param percentile the percentile ( 0 - 100 )
+   * @return the value at the percentile, or zero if never counted
+   */
+  public long getValueAtPercentile(final double percentile) {
+    if (Double.isNaN(percentile) || percentile < 0d || percentile > 100d) {
+      throw new IllegalArgumentException(String.format("percentile must be in range of 0 to 100, but %s .", percentile));
+    }
+    long total = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      total += counts.get(i);
+    }
+    final long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * total));
+    long counted = 0;
+    for (int i = 0; i < counts.length() && total > 0; i++) {
+      counted += counts.get(i);
+      if (counted >= rank) {
+        return Math.min(highestValueOf(i), getMax());
+      }
+    }
+
+    return 0L;
+  }
+
+  /** discards all values . */
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0L);
+    }
+    count.reset();
+    sum.reset();
+    min.reset();
+    max.reset();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return String.format("{count=%d, min=%d, p50=%d, p90=%d, p99=%d, max=%d}", getCount(), getMin(), getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), getMax());
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+/**
+ * a {@link Metrics.Registry} which holds the statistics per the shape of query in memory .
+ * <p>
+ * the count of shapes is bounded, measurements of shapes over the capacity are gathered into {@link #overflow} .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class InMemoryRegistry implements Metrics.Registry {
+
+  /** the system property to specify the default capacity of shapes . */
+  public static final String capacityProperty = InMemoryRegistry.class.getName() + ".capacity";
+
+  /** the shape which gathers measurements of shapes over the capacity . */
+  public static final String overflow = "(others)";
+
+  /**
+   * the statistics of a shape of query .
+   *
+   * @author furplag
+   *
+   */
+  public static final class Statistics {
+
+    /** the time to build the query in nanoseconds . */
+    @Getter
+    private final Histogram build = new Histogram();
+
+    /** the time to execute the query in nanoseconds . */
+    @Getter
+    private final Histogram execute = new Histogram();
+
+    /** count of rows . */
+    private final LongAdder rows = new LongAdder();
+
+    /** count of parameters . */
+    private final LongAdder binds = new LongAdder();
+
+    /** count of failed executions . */
+    private final LongAdder failures = new LongAdder();
+
+    private Statistics() {}
+
+    /**
+     * counts the measurement .
+     *
+     * @param sample {@link Metrics.Sample}
+     */
+    private void record(final Metrics.Sample sample) {
+      build.record(sample.getBuildNanos());
+      execute.record(sample.getExecuteNanos());
+      rows.add(sample.getRows());
+      binds.add(sample.getBinds());
+      if (sample.isFailed()) {
+        failures.increment();
+      }
+    }
+
+    /**
+     * returns the count of executions .
+     *
+     * @return the count of executions
+     */
+    public long getCount() {
+      return execute.getCount();
+    }
+
+    /**
+     * returns the count of parameters in total .
+     *
+     * @return the count of parameters in total
+     */
+    public long getBinds() {
+      return binds.sum();
+    }
+
+    /**
+     * returns the count of failed executions .
+     *
+     * @return the count of failed executions
+     */
+    public long getFailures() {
+      return failures.sum();
+    }
+
+    /**
+     * returns the count of rows in total .
+     *
+     * @return the count of rows in total
+     */
+    public long getRows() {
+      return rows.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return String.format("{count=%d, rows=%d, binds=%d, failures=%d, build=%s, execute=%s}", getCount(), getRows(), getBinds(), getFailures(), build, execute);
+    }
+  }
+
+  /** the maximum count of shapes . */
+  @Getter
+  private final int capacity;
+
+  /** statistics per shape . */
+  private final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+  /** creates a registry with the default capacity ( 256 ) . */
+  public InMemoryRegistry() {
+    this(Integer.getInteger(capacityProperty, 256));
+  }
+
+  /**
+   *
+   * @param capacity the maximum count of shapes
+   */
+  public InMemoryRegistry(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(String.format("capacity must be positive, but %d .", capacity));
+    }
+    this.capacity = capacity;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void record(final Metrics.Sample sample) {
+    Statistics _statistics = statistics.get(Objects.requireNonNull(sample).getShape());
+    if (Objects.isNull(_statistics)) {
+      _statistics = statistics.size() < capacity ? statistics.computeIfAbsent(sample.getShape(), (t) -> new Statistics()) : statistics.computeIfAbsent(overflow, (t) -> new Statistics());
+    }
+    _statistics.record(sample);
+  }
+
+  /**
+   * returns the statistics of the shape .
+   *
+   * @param shape the shape of query
+   * @return {@link Statistics}, or null if never measured
+   */
+  public Statistics get(final String shape) {
+    return statistics.get(shape);
+  }
+
+  /**
+   * returns the statistics of all shapes, in order of shape .
+   *
+   * @return the statistics keyed by the shape of query
+   */
+  public Map<String, Statistics> snapshot() {
+    return Collections.unmodifiableMap(new TreeMap<>(statistics));
+  }
+
+  /** discards all statistics . */
+  public void clear() {
+    statistics.clear();
+  }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.metrics;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import org.seasar.doma.jdbc.Sql;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import lombok.Value;
+
+/**
+ * measures the execution of queries, and reports it to the {@link Registry} per the shape of query .
+ * <p>
+ * the shape of query is the text of SQL which placeholders of "in" are folded, so that the same query with another values ( or another
+ * count of values ) is reported as the same shape . the time to build the query and the time to execute it are reported separately .
+ * measuring is disabled unless the system property {@link #enabledProperty} is true, or a registry has set with {@link #use(Registry)} .
+ * the execution is also recorded as {@link Events.QueryExecute} if the flight recording enables it, with the hash of the shape which the caller gives
+ * ( {@link jp.furplag.sandbox.domino.misc.origin.Criteria#getShape()} for the query of entities ), the same one as the events of rendering the query .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class Metrics {
+
+  /** the system property to enable {@link InMemoryRegistry} as the default registry . */
+  public static final String enabledProperty = Metrics.class.getName() + ".enabled";
+
+  /**
+   * a destination of {@link Sample}, implement this to export metrics to the monitoring .
+   *
+   * @author furplag
+   *
+   */
+  @FunctionalInterface
+  public static interface Registry {
+
+    /**
+     * receives a measurement of query .
+     *
+     * @param sample {@link Sample}
+     */
+    void record(Sample sample);
+
+    /**
+     * returns true if this registry receives measurements, or false to skip measuring at all .
+     *
+     * @return true if this registry receives measurements
+     */
+    default boolean isEnabled() {
+      return true;
+    }
+
+    /**
+     * returns the registry which never measures .
+     *
+     * @return {@link Registry}
+     */
+    static Registry none() {
+      return None.none;
+    }
+  }
+
+  /**
+   * a measurement of query .
+   *
+   * @author furplag
+   *
+   */
+  @Value
+  public static class Sample {
+
+    /** the shape of query . */
+    String shape;
+
+    /** the time to build the query in nanoseconds . */
+    long buildNanos;
+
+    /** the time to execute the query ( and consume the result ) in nanoseconds . */
+    long executeNanos;
+
+    /** the count of rows which the query returned . */
+    long rows;
+
+    /** the count of parameters which bound to the query . */
+    int binds;
+
+    /** true if the execution has failed . */
+    boolean failed;
+  }
+
+  /** the registry which never measures . */
+  private static enum None implements Registry {
+    none;
+
+    /** {@inheritDoc} */
+    @Override
+    public void record(final Sample sample) {/* nothing to do . */}
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+  }
+
+  /** placeholders of parameters, e.g. "?, ?, ?" . */
+  private static final Pattern placeholders = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+  /** the registry in use . */
+  private static final AtomicReference<Registry> registry = new AtomicReference<>(Boolean.getBoolean(enabledProperty) ? new InMemoryRegistry() : Registry.none());
+
+  private Metrics() {}
+
+  /**
+   * returns the registry in use .
+   *
+   * @return {@link Registry}
+   */
+  public static Registry registry() {
+    return registry.get();
+  }
+
+  /**
+   * sets the registry .
+   *
+   * @param registry {@link Registry}, or null to disable measuring
+   * @return the registry which used until now
+   */
+  public static Registry use(final Registry registry) {
+    return Metrics.registry.getAndSet(Objects.requireNonNullElse(registry, Registry.none()));
+  }
+
+  /**
+   * returns the shape of query .
+   *
+   * @param sql the text of SQL
+   * @return the text of SQL which placeholders of parameters are folded into "?..."
+   */
+  public static String shapeOf(final String sql) {
+    return placeholders.matcher(Objects.toString(sql, "").trim()).replaceAll("?...");
+  }
+
+  /**
+   * executes the query, and reports the measurement to the registry .
+   *
+   * @param <R> the type of result
+   * @param entityClass the type of entity
+   * @param query builds the query
+   * @param executor executes the query, the count of rows is the size of result if that is a {@link Collection} or an {@link Optional}
+   * @return the result of executor
+   */
+  public static <R> R measure(final Class<?> entityClass, final Supplier<SelectBuilder> query, final Function<SelectBuilder, R> executor) {
+    return measure(entityClass, null, query, executor);
+  }
+
+  /**
+   * executes the query, and reports the measurement to the registry .
+   *
+   * @param <R> the type of result
+   * @param entityClass the type of entity
+   * @param shape returns the shape of query which the event reports, called only if the recording needs, or null to report the text of SQL which placeholders are folded
+   * @param query builds the query
+   * @param executor executes the query, the count of rows is the size of result if that is a {@link Collection} or an {@link Optional}
+   * @return the result of executor
+   */
+  public static <R> R measure(final Class<?> entityClass, final Supplier<?> shape, final Supplier<SelectBuilder> query, final Function<SelectBuilder, R> executor) {
+    return measure(entityClass, shape, query, (selectBuilder, rows) -> {
+      final R result = executor.apply(selectBuilder);
+      rows.add(rowsOf(result));
+
+      return result;
+    });
+  }
+
+  /**
+   * executes the query, and reports the measurement to the registry .
+   *
+   * @param <R> the type of result
+   * @param entityClass the type of entity
+   * @param query builds the query
+   * @param executor executes the query, and counts rows of the result
+   * @return the result of executor
+   */
+  public static <R> R measure(final Class<?> entityClass, final Supplier<SelectBuilder> query, final BiFunction<SelectBuilder, LongAdder, R> executor) {
+    return measure(entityClass, null, query, executor);
+  }
+
+  /**
+   * executes the query, and reports the measurement to the registry .
+   *
+   * @param <R> the type of result
+   * @param entityClass the type of entity
+   * @param shape returns the shape of query which the event reports, called only if the recording needs, or null to report the text of SQL which placeholders are folded
+   * @param query builds the query
+   * @param executor executes the query, and counts rows of the result
+   * @return the result of executor
+   */
+  public static <R> R measure(final Class<?> entityClass, final Supplier<?> shape, final Supplier<SelectBuilder> query, final BiFunction<SelectBuilder, LongAdder, R> executor) {
+    final Registry registry = registry();
+    final LongAdder rows = new LongAdder();
+    final Events.QueryExecute event = new Events.QueryExecute();
+    if (!registry.isEnabled() && !event.isEnabled()) {
+      return executor.apply(query.get(), rows);
+    }
+    final long started = System.nanoTime();
+    final SelectBuilder selectBuilder = query.get();
+    final Sql<?> sql = selectBuilder.getSql();
+    final long built = System.nanoTime();
+    boolean failed = true;
+    event.begin();
+    try {
+      final R result = executor.apply(selectBuilder, rows);
+      failed = false;
+
+      return result;
+    } finally {
+      final long executed = System.nanoTime();
+      event.commit(entityClass, Objects.isNull(shape) ? () -> shapeOf(sql.getRawSql()) : shape, sql.getParameters().size());
+      if (registry.isEnabled()) {
+        registry.record(new Sample(shapeOf(sql.getRawSql()), built - started, executed - built, rows.sum(), sql.getParameters().size(), failed));
+      }
+    }
+  }
+
+  /**
+   * returns the count of rows in the result .
+   *
+   * @param result the result of query
+   * @return the count of rows
+   */
+  private static long rowsOf(final Object result) {
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    } else if (result instanceof Optional) {
+      return ((Optional<?>) result).isPresent() ? 1 : 0;
+    }
+
+    return Objects.isNull(result) ? 0 : 1;
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+
+/**
+ * executes queries of {@link Conditionally} in the executor, and returns the result as {@link CompletableFuture} .
+ * <p>
+ * the query is taken as a snapshot ( {@link Criteria} ) in the thread of caller, so that the entity may change after that .
+ * the default executor runs each query in a virtual thread if the runtime supports those, or in a cached pool of daemon threads .
+ * queries execute in other threads, so that those run outside of the transaction of the caller .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class Async {
+
+  /** the default executor . */
+  private static final Executor defaultExecutor = defaultExecutor();
+
+  /** the executor in use . */
+  private static final AtomicReference<Executor> executor = new AtomicReference<>(defaultExecutor);
+
+  private Async() {}
+
+  /**
+   * returns the executor which runs each task in a virtual thread, or a cached pool of daemon threads if the runtime not supports those .
+   *
+   * @return {@link Executor}
+   */
+  static Executor defaultExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Executors.newCachedThreadPool((runnable) -> {
+        final Thread thread = new Thread(runnable, Async.class.getSimpleName());
+        thread.setDaemon(true);
+
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * returns the executor in use .
+   *
+   * @return {@link Executor}
+   */
+  public static Executor executor() {
+    return executor.get();
+  }
+
+  /**
+   * sets the executor .
+   *
+   * @param executor {@link Executor}, or null to use the default executor
+   * @return the executor which used until now
+   */
+  public static Executor use(final Executor executor) {
+    return Async.executor.getAndSet(Objects.requireNonNullElse(executor, defaultExecutor));
+  }
+
+  /**
+   * executes the query of the entity .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @return the entities
+   */
+  public static <ENTITY extends Conditionally> CompletableFuture<List<ENTITY>> select(final Config config, final ENTITY entity) {
+    return select(config, entity, executor());
+  }
+
+  /**
+   * executes the query of the entity .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @param executor {@link Executor}
+   * @return the entities
+   */
+  public static <ENTITY extends Conditionally> CompletableFuture<List<ENTITY>> select(final Config config, final ENTITY entity, final Executor executor) {
+    return stream(config, entity, Origin.fetchSize(), (stream) -> stream.collect(Collectors.toList()), executor);
+  }
+
+  /**
+   * executes the query which {@link Conditionally#autoSelect(SelectBuilder, boolean)} structures .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @param excludeNull if true, ignoring null-value field
+   * @return the entities
+   */
+  public static <ENTITY extends Conditionally> CompletableFuture<List<ENTITY>> autoSelect(final Config config, final ENTITY entity, final boolean excludeNull) {
+    return autoSelect(config, entity, excludeNull, executor());
+  }
+
+  /**
+   * executes the query which {@link Conditionally#autoSelect(SelectBuilder, boolean)} structures .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @param excludeNull if true, ignoring null-value field
+   * @param executor {@link Executor}
+   * @return the entities
+   */
+  public static <ENTITY extends Conditionally> CompletableFuture<List<ENTITY>> autoSelect(final Config config, final ENTITY entity, final boolean excludeNull, final Executor executor) {
+    entity.autoSelect(SelectBuilder.newInstance(config), excludeNull);
+
+    return select(config, entity, executor);
+  }
+
+  /**
+   * executes the query of the entity, and consumes the result lazily in the executor .
+   *
+   * @param <ENTITY> the type of entity
+   * @param <R> the type of result
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @param fetchSize the count of rows which the driver fetches at once
+   * @param mapper consumes the stream of entities, the statement and the result set closes when this returns
+   * @return the result of mapper
+   * @see Criteria#stream(SelectBuilder, int, Function)
+   */
+  public static <ENTITY extends Conditionally, R> CompletableFuture<R> stream(final Config config, final ENTITY entity, final int fetchSize, final Function<Stream<ENTITY>, R> mapper) {
+    return stream(config, entity, fetchSize, mapper, executor());
+  }
+
+  /**
+   * executes the query of the entity, and consumes the result lazily in the executor .
+   *
+   * @param <ENTITY> the type of entity
+   * @param <R> the type of result
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @param fetchSize the count of rows which the driver fetches at once
+   * @param mapper consumes the stream of entities, the statement and the result set closes when this returns
+   * @param executor {@link Executor}
+   * @return the result of mapper
+   * @see Criteria#stream(SelectBuilder, int, Function)
+   */
+  public static <ENTITY extends Conditionally, R> CompletableFuture<R> stream(final Config config, final ENTITY entity, final int fetchSize, final Function<Stream<ENTITY>, R> mapper, final Executor executor) {
+    if (fetchSize < 1) {
+      throw new IllegalArgumentException(String.format("fetch size must be positive, but %d .", fetchSize));
+    }
+    Objects.requireNonNull(config);
+    Objects.requireNonNull(mapper);
+    final Criteria<ENTITY> criteria = Criteria.of(entity);
+
+    return CompletableFuture.supplyAsync(() -> criteria.stream(SelectBuilder.newInstance(config), fetchSize, mapper), Objects.requireNonNull(executor));
+  }
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.vars.Var;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+import jp.furplag.sandbox.stream.Streamr;
+import lombok.Getter;
+
+/**
+ * collects lookups by the primary key, and executes them in one query of "in" ( {@link Where.Operator#Includes} ) .
+ * <p>
+ * use an instance per request, {@link #load(Object)} the primary keys, then {@link #dispatch()} executes the query and completes the
+ * results . or dispatches automatically after the window from the first lookup, when created with a scheduler . results are kept until
+ * {@link #clear()}, so that the same primary key never queries twice in the request .
+ * </p>
+ * <p>
+ * the query executes in the thread which dispatches, so that a scheduled dispatch runs outside of the transaction of callers .
+ * </p>
+ *
+ * @author furplag
+ *
+ * @param <ENTITY> the type of entity, which has a single primary key
+ */
+public final class BatchLoader<ENTITY extends Conditionally> {
+
+  /** {@link Config} . */
+  private final Config config;
+
+  /** creates an entity which has no condition . */
+  private final Supplier<ENTITY> factory;
+
+  /** the type of entity . */
+  @Getter
+  private final Class<ENTITY> entityClass;
+
+  /** the field of primary key . */
+  private final Field identity;
+
+  /** dispatches lookups after the window, or null if dispatches manually . */
+  private final ScheduledExecutorService scheduler;
+
+  /** the time to wait for other lookups . */
+  private final Duration window;
+
+  /** results keyed by the primary key . */
+  private final Map<Object, CompletableFuture<Optional<ENTITY>>> futures = new ConcurrentHashMap<>();
+
+  /** the primary keys which waiting for dispatch, guarded by this . */
+  private final Map<Object, Object> pending = new LinkedHashMap<>();
+
+  /**
+   *
+   * @param config {@link Config}
+   * @param factory creates an entity which has no condition
+   * @param scheduler dispatches lookups after the window, or null if dispatches manually
+   * @param window the time to wait for other lookups
+   */
+  @SuppressWarnings({ "unchecked" })
+  private BatchLoader(final Config config, final Supplier<ENTITY> factory, final ScheduledExecutorService scheduler, final Duration window) {
+    this.config = Objects.requireNonNull(config);
+    this.factory = Objects.requireNonNull(factory);
+    entityClass = (Class<ENTITY>) factory.get().getClass();
+    final List<Field> identities = Streamr.Filter.filtering(Inspector.of(entityClass).getFields(), Inspector.Predicates::isIdentity).collect(Collectors.toList());
+    if (identities.size() != 1) {
+      throw new IllegalArgumentException(String.format("the entity \"%s\" must have a single primary key, but %d .", entityClass.getSimpleName(), identities.size()));
+    }
+    identity = identities.get(0);
+    this.scheduler = scheduler;
+    this.window = Objects.requireNonNullElse(window, Duration.ZERO);
+  }
+
+  /**
+   * returns a loader which dispatches manually .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param factory creates an entity which has no condition, e.g. the constructor
+   * @return {@link BatchLoader}
+   */
+  public static <ENTITY extends Conditionally> BatchLoader<ENTITY> of(final Config config, final Supplier<ENTITY> factory) {
+    return new BatchLoader<>(config, factory, null, null);
+  }
+
+  /**
+   * returns a loader which dispatches after the window from the first lookup .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param factory creates an entity which has no condition, e.g. the constructor
+   * @param scheduler dispatches lookups
+   * @param window the time to wait for other lookups
+   * @return {@link BatchLoader}
+   */
+  public static <ENTITY extends Conditionally> BatchLoader<ENTITY> of(final Config config, final Supplier<ENTITY> factory, final ScheduledExecutorService scheduler, final Duration window) {
+    return new BatchLoader<>(config, factory, Objects.requireNonNull(scheduler), window);
+  }
+
+  /**
+   * returns the key of the primary key, integral numbers are compared as long .
+   *
+   * @param id the value of primary key
+   * @return the key of the primary key
+   */
+  private static Object keyOf(final Object id) {
+    return id instanceof Integer || id instanceof Short || id instanceof Byte ? (Object) ((Number) id).longValue() : id;
+  }
+
+  /**
+   * requests the entity of the primary key .
+   *
+   * @param id the value of primary key
+   * @return the entity, or empty if not exists, completes in dispatch
+   */
+  public CompletableFuture<Optional<ENTITY>> load(final Object id) {
+    final Object key = keyOf(Objects.requireNonNull(id));
+    final CompletableFuture<Optional<ENTITY>> future = new CompletableFuture<>();
+    final CompletableFuture<Optional<ENTITY>> loaded = futures.putIfAbsent(key, future);
+    if (Objects.nonNull(loaded)) {
+      return loaded;
+    }
+    final boolean first;
+    synchronized (this) {
+      first = pending.isEmpty();
+      pending.put(key, id);
+    }
+    if (first && Objects.nonNull(scheduler)) {
+      scheduler.schedule(this::dispatch, window.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    return future;
+  }
+
+  /**
+   * returns the entities of the primary keys, in one query .
+   *
+   * @param ids the values of primary key
+   * @return the entities keyed by the primary key, excludes which not exists
+   */
+  public Map<Object, ENTITY> loadAll(final Collection<?> ids) {
+    final Map<Object, CompletableFuture<Optional<ENTITY>>> futures = new LinkedHashMap<>();
+    Streamr.stream(ids).forEach((id) -> futures.put(id, load(id)));
+    dispatch();
+    final Map<Object, ENTITY> entities = new LinkedHashMap<>();
+    futures.forEach((id, future) -> future.join().ifPresent((entity) -> entities.put(id, entity)));
+
+    return entities;
+  }
+
+  /**
+   * returns the entity of the primary key, executes the query with other lookups which waiting for dispatch .
+   *
+   * @param id the value of primary key
+   * @return the entity, or empty if not exists
+   */
+  public Optional<ENTITY> get(final Object id) {
+    final CompletableFuture<Optional<ENTITY>> future = load(id);
+    if (!future.isDone()) {
+      dispatch();
+    }
+
+    return future.join();
+  }
+
+  /**
+   * executes the query of the primary keys which waiting for dispatch, and completes the results .
+   *
+   * @return the count of the primary keys which queried
+   */
+  public int dispatch() {
+    final Map<Object, Object> batch;
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        return 0;
+      }
+      batch = new LinkedHashMap<>(pending);
+      pending.clear();
+    }
+    try {
+      final Map<Object, ENTITY> entities = new HashMap<>();
+      for (ENTITY entity : query(batch.values())) {
+        entities.putIfAbsent(keyOf(Var.varOf(entity, identity).getValue()), entity);
+      }
+      batch.keySet().forEach((key) -> futures.get(key).complete(Optional.ofNullable(entities.get(key))));
+    } catch (RuntimeException | Error e) {
+      batch.keySet().forEach((key) -> futures.remove(key).completeExceptionally(e));
+      throw e;
+    }
+
+    return batch.size();
+  }
+
+  /**
+   * executes the query of the primary keys .
+   *
+   * @param ids the values of primary key
+   * @return the entities
+   */
+  private List<ENTITY> query(final Collection<Object> ids) {
+    final ENTITY entity = factory.get();
+    final Class<?> type = identity.getType();
+    if (long.class.equals(type) || Long.class.equals(type)) {
+      entity.whereAnyOf(identity.getName(), Where.Operator.Includes, ids.stream().mapToLong((id) -> ((Number) id).longValue()).toArray());
+    } else if (int.class.equals(type) || Integer.class.equals(type)) {
+      entity.whereAnyOf(identity.getName(), Where.Operator.Includes, ids.stream().mapToInt((id) -> ((Number) id).intValue()).toArray());
+    } else {
+      entity.where(identity.getName(), Where.Operator.Includes, ids.toArray());
+    }
+
+    return entity.execute(SelectBuilder.newInstance(config), (query) -> query.getEntityResultList(entityClass));
+  }
+
+  /** discards the results, lookups after this query again . */
+  public void clear() {
+    futures.values().removeIf(CompletableFuture::isDone);
+  }
+}
@@ -0,0 +1,373 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.seasar.doma.Column;
+import org.seasar.doma.GeneratedValue;
+import org.seasar.doma.Version;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.BatchUpdateExecutor;
+import org.seasar.doma.jdbc.builder.InsertBuilder;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.dialect.H2Dialect;
+import org.seasar.doma.jdbc.dialect.PostgresDialect;
+import jp.furplag.sandbox.domino.misc.cache.EntityCache;
+import jp.furplag.sandbox.domino.misc.cache.ResultCache;
+import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.vars.Var;
+import jp.furplag.sandbox.stream.Streamr;
+
+/**
+ * writes entities in bulk, using the columns which {@link Inspector} resolved .
+ * <ul>
+ * <li>insert: multi-row "insert into ... values (...), (...)"</li>
+ * <li>update: JDBC batch of "update ... set ... where" the primary key (s)</li>
+ * <li>upsert: multi-row "merge into ... key (...)" on H2, "insert ... on conflict (...) do update" on PostgreSQL</li>
+ * </ul>
+ * <p>
+ * entities are grouped by its class, and each group writes in chunks of the batch size,
+ * so that the count of round trips is about the count of entities divided by the batch size .
+ * columns of {@link Column#insertable() insertable = false} are not inserted, and columns of {@link Column#updatable() updatable = false} are not updated .
+ * entities which have {@link Version @Version} are rejected, and so are entities which have {@link GeneratedValue @GeneratedValue} to insert or upsert,
+ * because Bulk neither locks optimistically nor retrieves generated values .
+ * the entities written are discarded from {@link EntityCache}, and the results which read the table are discarded from {@link ResultCache}, even if the write fails .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class Bulk {
+
+  /** the system property to specify the default batch size . */
+  public static final String batchSizeProperty = Bulk.class.getName() + ".batchSize";
+
+  /** the maximum count of parameters in a statement, which most drivers accept . */
+  static final int maxParameters = Short.MAX_VALUE;
+
+  private Bulk() {}
+
+  /**
+   * returns the batch size, specified by the system property {@link #batchSizeProperty} ( default: 1000 ) .
+   *
+   * @return the batch size
+   */
+  public static int batchSize() {
+    return Integer.getInteger(batchSizeProperty, 1000);
+  }
+
+  /**
+   * inserts entities with multi-row insert statements .
+   *
+   * @param config {@link Config}
+   * @param entities entities
+   * @return the count of inserted rows
+   */
+  public static int insert(final Config config, final Collection<? extends Origin> entities) {
+    return insert(config, batchSize(), entities);
+  }
+
+  /**
+   * inserts entities with multi-row insert statements .
+   *
+   * @param config {@link Config}
+   * @param batchSize the count of rows in a statement
+   * @param entities entities
+   * @return the count of inserted rows
+   */
+  public static int insert(final Config config, final int batchSize, final Collection<? extends Origin> entities) {
+    return write(config, batchSize, entities, Bulk::insertables, (inspector, fields) -> String.format("insert into %s (%s) values ", inspector.getName(), columnNames(fields, inspector)), (inspector, fields) -> "");
+  }
+
+  /**
+   * updates entities with JDBC batch, keyed by the primary key (s) .
+   *
+   * @param config {@link Config}
+   * @param entities entities
+   * @return the count of updated rows per entity
+   */
+  public static int[] update(final Config config, final Collection<? extends Origin> entities) {
+    return update(config, batchSize(), entities);
+  }
+
+  /**
+   * updates entities with JDBC batch, keyed by the primary key (s) .
+   *
+   * @param config {@link Config}
+   * @param batchSize the count of statements in a batch
+   * @param entities entities
+   * @return the count of updated rows per entity, in order of the group of entity class
+   * @throws IllegalArgumentException if any of entity classes has no primary key, or no column to update, before updating any
+   */
+  @SuppressWarnings({ "unchecked" })
+  public static int[] update(final Config config, final int batchSize, final Collection<? extends Origin> entities) {
+    validate(batchSize);
+    final Map<Inspector<?>, List<Origin>> groups = groups(entities);
+    final Map<Inspector<?>, List<Field>> identities = columns(groups, Bulk::identities);
+    final Map<Inspector<?>, List<Field>> columns = columns(groups, Bulk::updatables);
+    final List<int[]> results = new ArrayList<>();
+    for (Map.Entry<Inspector<?>, List<Origin>> group : groups.entrySet()) {
+      final Inspector<?> inspector = group.getKey();
+      final List<Field> fields = columns.get(inspector);
+      try {
+        results.add(BatchUpdateExecutor.newInstance(config).batchSize(batchSize).execute(group.getValue(), (entity, builder) -> {
+          builder.sql(String.format("update %s set ", inspector.getName()));
+          for (int i = 0; i < fields.size(); i++) {
+            final Var<Object> var = Var.varOf(entity, fields.get(i));
+            builder.sql(String.format(i > 0 ? ", %s = " : "%s = ", var.getColumnName())).param((Class<Object>) var.getValueType(), var.getValue());
+          }
+          for (int i = 0; i < identities.get(inspector).size(); i++) {
+            final Var<Object> var = Var.varOf(entity, identities.get(inspector).get(i));
+            builder.sql(String.format(i > 0 ? " and %s = " : " where %s = ", var.getColumnName())).param((Class<Object>) var.getValueType(), var.getValue());
+          }
+        }));
+      } finally {
+        EntityCache.shared().invalidate(group.getValue());
+        ResultCache.shared().invalidate(inspector.getName());
+      }
+    }
+
+    return results.stream().flatMapToInt(IntStream::of).toArray();
+  }
+
+  /**
+   * inserts or updates entities with multi-row statements, keyed by the primary key (s) .
+   *
+   * @param config {@link Config}
+   * @param entities entities
+   * @return the count of affected rows
+   */
+  public static int upsert(final Config config, final Collection<? extends Origin> entities) {
+    return upsert(config, batchSize(), entities);
+  }
+
+  /**
+   * inserts or updates entities with multi-row statements, keyed by the primary key (s) .
+   *
+   * @param config {@link Config}
+   * @param batchSize the count of rows in a statement
+   * @param entities entities
+   * @return the count of affected rows
+   */
+  public static int upsert(final Config config, final int batchSize, final Collection<? extends Origin> entities) {
+    final Dialect dialect = Objects.requireNonNull(config).getDialect();
+    if (dialect instanceof H2Dialect) {
+      // @formatter:off
+      return write(config, batchSize, entities, Bulk::upsertables
+        , (inspector, fields) -> String.format("merge into %s (%s) key (%s) values ", inspector.getName(), columnNames(fields, inspector), columnNames(identities(inspector), inspector))
+        , (inspector, fields) -> "");
+      // @formatter:on
+    } else if (dialect instanceof PostgresDialect) {
+      // @formatter:off
+      return write(config, batchSize, entities, Bulk::upsertables
+        , (inspector, fields) -> String.format("insert into %s (%s) values ", inspector.getName(), columnNames(fields, inspector))
+        , (inspector, fields) -> String.format(" on conflict (%s) do %s", columnNames(identities(inspector), inspector)
+          , Streamr.Filter.filtering(fields, (field) -> !Inspector.Predicates.isIdentity(field)).map(inspector::getName).map((columnName) -> String.format("%1$s = excluded.%1$s", columnName)).collect(Collectors.collectingAndThen(Collectors.joining(", "), (set) -> set.isEmpty() ? "nothing" : "update set " + set))));
+      // @formatter:on
+    }
+
+    throw new UnsupportedOperationException(String.format("upsert is not supported in %s .", dialect.getName()));
+  }
+
+  /**
+   * writes entities with multi-row statements .
+   *
+   * @param config {@link Config}
+   * @param batchSize the count of rows in a statement
+   * @param entities entities
+   * @param fieldsOf returns the fields of columns to write
+   * @param prefix returns the statement before values
+   * @param suffix returns the statement after values
+   * @return the count of affected rows
+   */
+  @SuppressWarnings({ "unchecked" })
+  private static int write(final Config config, final int batchSize, final Collection<? extends Origin> entities, final Function<Inspector<?>, List<Field>> fieldsOf, final BiFunction<Inspector<?>, List<Field>, String> prefix, final BiFunction<Inspector<?>, List<Field>, String> suffix) {
+    validate(batchSize);
+    final Map<Inspector<?>, List<Origin>> groups = groups(entities);
+    final Map<Inspector<?>, List<Field>> columns = columns(groups, fieldsOf);
+    int result = 0;
+    for (Map.Entry<Inspector<?>, List<Origin>> group : groups.entrySet()) {
+      final Inspector<?> inspector = group.getKey();
+      final List<Field> fields = columns.get(inspector);
+      final int chunk = Math.max(1, Math.min(batchSize, maxParameters / Math.max(1, fields.size())));
+      final String before = prefix.apply(inspector, fields);
+      final String after = suffix.apply(inspector, fields);
+      try {
+        for (int from = 0; from < group.getValue().size(); from += chunk) {
+          final InsertBuilder builder = InsertBuilder.newInstance(config).sql(before);
+          final List<Origin> rows = group.getValue().subList(from, Math.min(from + chunk, group.getValue().size()));
+          for (int i = 0; i < rows.size(); i++) {
+            builder.sql(i > 0 ? ", (" : "(");
+            for (int j = 0; j < fields.size(); j++) {
+              final Var<Object> var = Var.varOf(rows.get(i), fields.get(j));
+              if (j > 0) {
+                builder.sql(", ");
+              }
+              builder.param((Class<Object>) var.getValueType(), var.getValue());
+            }
+            builder.sql(")");
+          }
+          result += builder.sql(after).execute();
+        }
+      } finally {
+        EntityCache.shared().invalidate(group.getValue());
+        ResultCache.shared().invalidate(inspector.getName());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * returns entities grouped by its inspector, in order of appearance .
+   *
+   * @param entities entities
+   * @return entities grouped by its inspector
+   */
+  private static Map<Inspector<?>, List<Origin>> groups(final Collection<? extends Origin> entities) {
+    final Map<Inspector<?>, List<Origin>> groups = new LinkedHashMap<>();
+    Streamr.stream(entities).forEach((entity) -> groups.computeIfAbsent(entity.inspector(), (inspector) -> new ArrayList<>()).add(entity));
+
+    return groups;
+  }
+
+  /**
+   * returns the fields of columns to write per inspector, validates all of groups before writing any .
+   *
+   * @param groups entities grouped by its inspector
+   * @param fieldsOf returns the fields of columns to write
+   * @return the fields of columns to write per inspector
+   */
+  private static Map<Inspector<?>, List<Field>> columns(final Map<Inspector<?>, List<Origin>> groups, final Function<Inspector<?>, List<Field>> fieldsOf) {
+    final Map<Inspector<?>, List<Field>> columns = new LinkedHashMap<>();
+    groups.keySet().forEach((inspector) -> columns.put(inspector, fieldsOf.apply(inspector)));
+
+    return columns;
+  }
+
+  /**
+   * returns the fields of columns to insert, which are not {@link Column#insertable() insertable = false} .
+   *
+   * @param inspector {@link Inspector}
+   * @return the fields of columns to insert
+   */
+  private static List<Field> insertables(final Inspector<?> inspector) {
+    validate(inspector, true);
+
+    return Streamr.Filter.filtering(inspector.getFields(), Inspector.Predicates::isInsertable).collect(Collectors.toList());
+  }
+
+  /**
+   * returns the fields of columns to update, except primary key (s) and {@link Column#updatable() updatable = false} .
+   *
+   * @param inspector {@link Inspector}
+   * @return the fields of columns to update
+   * @throws IllegalArgumentException if the entity has no column to update
+   */
+  private static List<Field> updatables(final Inspector<?> inspector) {
+    validate(inspector, false);
+    final List<Field> updatables = Streamr.Filter.filtering(inspector.getFields(), (field) -> !Inspector.Predicates.isIdentity(field) && Inspector.Predicates.isUpdatable(field)).collect(Collectors.toList());
+    if (updatables.isEmpty()) {
+      throw new IllegalArgumentException(String.format("the entity \"%s\" has no column to update .", inspector.getName()));
+    }
+
+    return updatables;
+  }
+
+  /**
+   * returns the fields of columns to insert or update, primary key (s) and columns both insertable and updatable .
+   * <p>
+   * a statement writes the same values either inserting or updating, so that a column which is only one of insertable or updatable is rejected .
+   * </p>
+   *
+   * @param inspector {@link Inspector}
+   * @return the fields of columns to insert or update
+   */
+  private static List<Field> upsertables(final Inspector<?> inspector) {
+    validate(inspector, true);
+    Streamr.Filter.filtering(inspector.getFields(), (field) -> !Inspector.Predicates.isIdentity(field) && Inspector.Predicates.isInsertable(field) != Inspector.Predicates.isUpdatable(field)).findFirst().ifPresent((field) -> {
+      throw new IllegalArgumentException(String.format("the column \"%s\" of the entity \"%s\" must be either both insertable and updatable, or neither of those to upsert .", inspector.getName(field), inspector.getName()));
+    });
+
+    return Streamr.Filter.filtering(inspector.getFields(), (field) -> Inspector.Predicates.isIdentity(field) || Inspector.Predicates.isInsertable(field)).collect(Collectors.toList());
+  }
+
+  /**
+   * validates the entity which Bulk able to write .
+   * <ul>
+   * <li>{@link Version @Version}: rejected, Bulk does not lock optimistically</li>
+   * <li>{@link GeneratedValue @GeneratedValue}: rejected if inserts, Bulk does not retrieve generated values</li>
+   * </ul>
+   *
+   * @param inspector {@link Inspector}
+   * @param inserts true if the statement inserts rows
+   */
+  private static void validate(final Inspector<?> inspector, final boolean inserts) {
+    Streamr.Filter.filtering(inspector.getFields(), Inspector.Predicates::isVersion).findFirst().ifPresent((field) -> {
+      throw new IllegalArgumentException(String.format("the entity \"%s\" has the version \"%s\", which Bulk does not support .", inspector.getName(), inspector.getName(field)));
+    });
+    Streamr.Filter.filtering(inspector.getFields(), (field) -> inserts && Inspector.Predicates.isGenerated(field)).findFirst().ifPresent((field) -> {
+      throw new IllegalArgumentException(String.format("the entity \"%s\" has the generated value \"%s\", which Bulk does not support to insert .", inspector.getName(), inspector.getName(field)));
+    });
+  }
+
+  /**
+   * returns the fields of primary key (s) .
+   *
+   * @param inspector {@link Inspector}
+   * @return the fields of primary key (s)
+   */
+  private static List<Field> identities(final Inspector<?> inspector) {
+    final List<Field> identities = Streamr.Filter.filtering(inspector.getFields(), Inspector.Predicates::isIdentity).collect(Collectors.toList());
+    if (identities.isEmpty()) {
+      throw new IllegalArgumentException(String.format("the entity \"%s\" has no primary key .", inspector.getName()));
+    }
+
+    return identities;
+  }
+
+  /**
+   * returns comma-separated column names .
+   *
+   * @param fields fields
+   * @param inspector {@link Inspector}
+   * @return comma-separated column names
+   */
+  private static String columnNames(final List<Field> fields, final Inspector<?> inspector) {
+    return fields.stream().map(inspector::getName).collect(Collectors.joining(", "));
+  }
+
+  /**
+   * validates the batch size .
+   *
+   * @param batchSize the batch size
+   */
+  private static void validate(final int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException(String.format("batch size must be positive, but %d .", batchSize));
+    }
+  }
+}
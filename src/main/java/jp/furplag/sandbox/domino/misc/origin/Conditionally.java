@@ -16,22 +16,21 @@
 package jp.furplag.sandbox.domino.misc.origin;
 
 import java.lang.reflect.Field;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Queue;
-import java.util.concurrent.atomic.AtomicReference;
-import org.seasar.doma.Id;
-import org.seasar.doma.Table;
+import java.util.stream.Collectors;
 import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.fragment.Clauses;
+import jp.furplag.sandbox.domino.misc.fragment.Template;
 import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.metrics.Events;
 import jp.furplag.sandbox.domino.misc.vars.Var;
 import jp.furplag.sandbox.domino.misc.vars.Var.Range;
 import jp.furplag.sandbox.domino.misc.vars.Where;
 import jp.furplag.sandbox.reflect.SavageReflection;
 import jp.furplag.sandbox.stream.Streamr;
 import jp.furplag.sandbox.trebuchet.Trebuchet;
-import lombok.Getter;
 
 /**
  * a simply structure of the {@link org.seasar.doma.Entity} .
@@ -53,6 +52,36 @@ public interface Conditionally extends Sequentially {
     return operator == null ? (ENTITY) this : where(Trebuchet.Functions.orElse(Trebuchet.Functions.orNot(this, inspector().getField(fieldName), values, Var::varOf), operator, Where::of, (t, u, ex) -> {ex.printStackTrace(); return null; } ));
   }
 
+  /**
+   * adds the condition of "in" with int values, which never boxes the values until binding .
+   * empty values fall back to a plain condition in the same way as {@link #where(String, Where.Operator, Object...)} .
+   *
+   * @param <ENTITY> the type of entity
+   * @param fieldName the name of field
+   * @param operator {@link Where.Operator#Includes} or {@link Where.Operator#Excludes}
+   * @param values the values
+   * @return this entity
+   */
+  @SuppressWarnings("unchecked")
+  default <ENTITY extends Conditionally> ENTITY whereAnyOf(String fieldName, Where.Operator operator, int... values) {
+    return operator == null ? (ENTITY) this : where(Trebuchet.Functions.orElse(Trebuchet.Functions.orNot(this, inspector().getField(fieldName), values, Var::intsOf), operator, Where::of, (t, u, ex) -> {ex.printStackTrace(); return null; } ));
+  }
+
+  /**
+   * adds the condition of "in" with long values, which never boxes the values until binding .
+   * empty values fall back to a plain condition in the same way as {@link #where(String, Where.Operator, Object...)} .
+   *
+   * @param <ENTITY> the type of entity
+   * @param fieldName the name of field
+   * @param operator {@link Where.Operator#Includes} or {@link Where.Operator#Excludes}
+   * @param values the values
+   * @return this entity
+   */
+  @SuppressWarnings("unchecked")
+  default <ENTITY extends Conditionally> ENTITY whereAnyOf(String fieldName, Where.Operator operator, long... values) {
+    return operator == null ? (ENTITY) this : where(Trebuchet.Functions.orElse(Trebuchet.Functions.orNot(this, inspector().getField(fieldName), values, Var::longsOf), operator, Where::of, (t, u, ex) -> {ex.printStackTrace(); return null; } ));
+  }
+
   default <T extends Comparable<T>, ENTITY extends Conditionally> ENTITY where(String fieldName, boolean containsEqual, T min, T max) {
     return where(Where.rangeOf((Range<T>) Var.rangeOf(this, inspector().getField(fieldName), min, max), containsEqual));
   }
@@ -84,24 +113,72 @@ public interface Conditionally extends Sequentially {
    * @return selectBuilder ( query structured )
    */
   default SelectBuilder select(SelectBuilder selectBuilder, String[] excludeSelectFieldNames, String... excludeConditionalFieldNames) {
-    return whereClause(selectBuilder.sql(selectClause(excludeSelectFieldNames)), excludeConditionalFieldNames).sql(orderClause());
+    return select(Clauses.of(selectBuilder), excludeSelectFieldNames, excludeConditionalFieldNames).getSelectBuilder();
+  }
+
+  /**
+   * constructing simple SQL query .
+   *
+   * @param clauses {@link Clauses}
+   * @param excludeSelectFieldNames field name (s) which excludes from result
+   * @param excludeConditionalFieldNames field name (s) which excludes from condition
+   * @return clauses ( query structured )
+   */
+  default Clauses select(Clauses clauses, String[] excludeSelectFieldNames, String... excludeConditionalFieldNames) {
+    final Events.SelectRender event = new Events.SelectRender();
+    event.begin();
+    final Criteria<Conditionally> criteria = Criteria.of(this, excludeSelectFieldNames);
+    clauses.bind(criteria.getTemplate(), criteria.getValues());
+    event.commit(getClass(), criteria::getShape, criteria.getValues());
+
+    return clauses;
+  }
+
+  /**
+   * returns an immutable snapshot of the query which this entity has structured .
+   *
+   * @param <ENTITY> the type of entity
+   * @param excludeSelectFieldNames field name (s) which excludes from result
+   * @return {@link Criteria}
+   */
+  @SuppressWarnings({ "unchecked" })
+  default <ENTITY extends Conditionally> Criteria<ENTITY> criteria(String... excludeSelectFieldNames) {
+    return Criteria.of((ENTITY) this, excludeSelectFieldNames);
   }
 
   /**
    * returns select clause in SQL query .
+   * <p>
+   * the query has not come from {@link Clauses}, so that the where clause is detected from the text of SQL ( see {@link Clauses#detect(SelectBuilder)} ),
+   * use {@link #whereClause(Clauses, String...)} to say it explicitly .
+   * </p>
    *
+   * @param selectBuilder {@link SelectBuilder}
    * @param excludeFieldNames field name (s) which excludes from condition
    * @return select clause in SQL query
    */
   default SelectBuilder whereClause(SelectBuilder selectBuilder, String... excludeFieldNames) {
-    final AtomicReference<String> prefix = new AtomicReference<>(Trebuchet.Predicates.orNot(selectBuilder.getSql().toString(), (sql) -> sql.toLowerCase().replaceAll("\\r?\\n", " ").contains(" where ")) ? "and" : "where");
-    // @formatter:off
-    getWheres().entrySet().stream()
-      .sorted(Comparator.comparing(Map.Entry::getValue))
-      .forEach((entry) -> Trebuchet.Consumers.orNot(selectBuilder.sql(String.format(" %s ", prefix.getAndSet("and"))), entry, (_selectBuilder, _entry) -> _entry.getValue().sql(_selectBuilder)));
-    // @formatter:on
-
-    return selectBuilder;
+    return whereClause(Clauses.detect(selectBuilder), excludeFieldNames).getSelectBuilder();
+  }
+
+  /**
+   * returns where clause in SQL query .
+   *
+   * @param clauses {@link Clauses}
+   * @param excludeFieldNames field name (s) which excludes from condition
+   * @return clauses ( query structured )
+   */
+  @Override
+  default Clauses whereClause(Clauses clauses, String... excludeFieldNames) {
+    final Events.WhereRender event = new Events.WhereRender();
+    event.begin();
+    final List<Where<?>> wheres = getWheres().values().stream().sorted().collect(Collectors.toList());
+    final Template template = Criteria.whereClause(wheres);
+    final List<Object> values = Criteria.values(wheres);
+    clauses.bind(template, values);
+    event.commit(getClass(), () -> Criteria.shapeOf(this), values);
+
+    return clauses;
   }
 
   /**
@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.fragment.Clauses;
+import jp.furplag.sandbox.domino.misc.fragment.Template;
+import jp.furplag.sandbox.domino.misc.fragment.Templates;
+import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.metrics.Events;
+import jp.furplag.sandbox.domino.misc.metrics.Metrics;
+import jp.furplag.sandbox.domino.misc.routing.RoutingDataSource;
+import jp.furplag.sandbox.domino.misc.vars.Var;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+import jp.furplag.sandbox.stream.Streamr;
+import lombok.Getter;
+
+/**
+ * an immutable snapshot of the query which {@link Conditionally} has structured, that is safe to share between threads .
+ * <p>
+ * the conditions, the order and the values are copied in creation, so that changing the entity after that never affects the criteria .
+ * use {@link #with(String, Object...)} to execute the same query with another values .
+ * </p>
+ *
+ * @author furplag
+ *
+ * @param <ENTITY> the type of entity
+ */
+public final class Criteria<ENTITY extends Conditionally> {
+
+  /** the type of entity . */
+  @Getter
+  private final Class<ENTITY> entityClass;
+
+  /** the entity which the criteria created from, only refers to the metadata . */
+  private final ENTITY entity;
+
+  /** field name (s) which excludes from result . */
+  private final List<String> excludeSelectFieldNames;
+
+  /** the order of columns . */
+  private final List<Sequentially.OrderBy> order;
+
+  /** conditions, in order . */
+  private final List<Where<?>> wheres;
+
+  /** the shape of query, which identifies the query regardless of the values . */
+  @Getter
+  private final List<?> shape;
+
+  /** compiled query . */
+  @Getter
+  private final Template template;
+
+  /** the values of placeholder . */
+  @Getter
+  private final List<Object> values;
+
+  /**
+   * the select clause and the order clause render only if the template of the shape has not compiled yet .
+   *
+   * @param entity the entity
+   * @param excludeSelectFieldNames field name (s) which excludes from result
+   * @param order the order of columns
+   * @param wheres conditions, in order
+   */
+  @SuppressWarnings({ "unchecked" })
+  private Criteria(final ENTITY entity, final List<String> excludeSelectFieldNames, final List<Sequentially.OrderBy> order, final List<Where<?>> wheres) {
+    this.entity = entity;
+    entityClass = (Class<ENTITY>) entity.getClass();
+    this.excludeSelectFieldNames = excludeSelectFieldNames;
+    this.order = order;
+    this.wheres = Collections.unmodifiableList(wheres);
+    shape = shapeOf(excludeSelectFieldNames, this.wheres, order);
+    // @formatter:off
+    template = Templates.shared().get(entityClass, shape, () -> Template.builder()
+      .sql(entity.selectClause(excludeSelectFieldNames.toArray(String[]::new)))
+      .append(whereClause(this.wheres))
+      .sql(Sequentially.OrderBy.clauseOf(order)).build());
+    // @formatter:on
+    values = Collections.unmodifiableList(values(this.wheres));
+  }
+
+  /**
+   * returns a snapshot of the query which the entity has structured .
+   *
+   * @param <ENTITY> the type of entity
+   * @param entity the entity
+   * @param excludeSelectFieldNames field name (s) which excludes from result
+   * @return {@link Criteria}
+   */
+  public static <ENTITY extends Conditionally> Criteria<ENTITY> of(final ENTITY entity, final String... excludeSelectFieldNames) {
+    // @formatter:off
+    return new Criteria<>(Objects.requireNonNull(entity)
+      , excludesOf(excludeSelectFieldNames)
+      , List.copyOf(entity.getOrder())
+      , entity.getWheres().values().stream().sorted().collect(Collectors.toList()));
+    // @formatter:on
+  }
+
+  /**
+   * returns field name (s) which excludes from result .
+   *
+   * @param excludeSelectFieldNames field name (s) which excludes from result
+   * @return field name (s) which excludes from result, unmodifiable
+   */
+  private static List<String> excludesOf(final String... excludeSelectFieldNames) {
+    return Objects.isNull(excludeSelectFieldNames) ? List.of() : Collections.unmodifiableList(Arrays.asList(excludeSelectFieldNames.clone()));
+  }
+
+  /**
+   * returns the shape of query, the one which keys the template, and events and metrics report for the query .
+   * <p>
+   * consists of field name (s) which excludes from result, the column, the operator and the arity of each condition, and the column and the
+   * direction of each order, so that nothing renders to make the key .
+   * </p>
+   *
+   * @param excludeSelectFieldNames field name (s) which excludes from result
+   * @param wheres conditions, in order
+   * @param order the order of columns
+   * @return the shape of query
+   */
+  static List<?> shapeOf(final List<String> excludeSelectFieldNames, final List<Where<?>> wheres, final Collection<Sequentially.OrderBy> order) {
+    // @formatter:off
+    return List.of(excludeSelectFieldNames
+      , wheres.stream().map(Where::getShape).collect(Collectors.toList())
+      , order.stream().map((orderBy) -> List.of(orderBy.getKey(), orderBy.getValue())).collect(Collectors.toList()));
+    // @formatter:on
+  }
+
+  /**
+   * returns the shape of query which the entity has structured, the same as {@link #getShape()} of the criteria created from it .
+   *
+   * @param entity the entity
+   * @param excludeSelectFieldNames field name (s) which excludes from result
+   * @return the shape of query
+   */
+  static List<?> shapeOf(final Origin entity, final String... excludeSelectFieldNames) {
+    final List<String> excludes = excludesOf(excludeSelectFieldNames);
+    if (entity instanceof Conditionally) {
+      return shapeOf(excludes, ((Conditionally) entity).getWheres().values().stream().sorted().collect(Collectors.toList()), ((Conditionally) entity).getOrder());
+    }
+
+    return shapeOf(excludes, List.of(), entity instanceof Sequentially ? ((Sequentially) entity).getOrder() : List.of());
+  }
+
+  /**
+   * returns the shape of query which finds the entity by the primary key (s), the same as the criteria which has conditions of those .
+   *
+   * @param entity the entity
+   * @return the shape of query
+   */
+  static List<?> shapeOfId(final Origin entity) {
+    // @formatter:off
+    return shapeOf(List.of(), Streamr.Filter.filtering(entity.inspector().getFields(), Inspector.Predicates::isIdentity)
+      .<Where<?>>map((field) -> Where.of(Var.varOf(entity, field), Where.Operator.Equal)).collect(Collectors.toList()), List.of());
+    // @formatter:on
+  }
+
+  /**
+   * returns where clause in SQL query .
+   *
+   * @param wheres conditions, in order
+   * @return where clause in SQL query
+   */
+  static Template whereClause(final List<Where<?>> wheres) {
+    final Template.Builder template = Template.builder();
+    wheres.forEach((where) -> template.where().append(where.template()));
+
+    return template.build();
+  }
+
+  /**
+   * returns the values of conditions .
+   *
+   * @param wheres conditions, in order
+   * @return the values of conditions
+   */
+  static List<Object> values(final List<Where<?>> wheres) {
+    return wheres.stream().map(Where::values).flatMap(List::stream).collect(Collectors.toList());
+  }
+
+  /**
+   * returns a criteria which has another values of the condition .
+   *
+   * @param fieldName the name of field which the condition has
+   * @param values the values, minimum and maximum if the condition is a range
+   * @return a new criteria
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public Criteria<ENTITY> with(final String fieldName, final Object... values) {
+    final Field field = entity.inspector().getField(fieldName);
+    final String columnName = Objects.isNull(field) ? null : entity.inspector().getName(field);
+    final Where<?> where = wheres.stream().filter((t) -> t.getVar().getColumnName().equals(columnName)).findFirst().orElse(null);
+    if (Objects.isNull(where) || where.getOperator().isNullFinder()) {
+      throw new IllegalArgumentException(String.format("the field \"%s\" has no condition which binds values .", fieldName));
+    }
+    final Object[] _values = Objects.requireNonNullElse(values, new Object[] { null });
+    final Where<?> replacement;
+    if (where.getVar() instanceof Var.Range) {
+      replacement = Where.rangeOf((Var.Range) Var.rangeOf(entity, field, (Comparable) (_values.length > 0 ? _values[0] : null), (Comparable) (_values.length > 1 ? _values[1] : null)), Where.Operator.LessThanEqual.equals(where.getOperator()));
+    } else if (where instanceof Where.AnyOf) {
+      replacement = Where.of(Var.varOf(entity, field, _values), where.getOperator(), ((Where.AnyOf<?>) where).getStrategy());
+    } else {
+      replacement = Where.of(Var.varOf(entity, field, _values.length > 0 ? _values[0] : null), where.getOperator());
+    }
+
+    return new Criteria<>(entity, excludeSelectFieldNames, order, wheres.stream().map((t) -> t == where ? replacement : t).collect(Collectors.toCollection(ArrayList::new)));
+  }
+
+  /**
+   * renders the query to {@link SelectBuilder} .
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @return selectBuilder ( query structured )
+   */
+  public SelectBuilder select(final SelectBuilder selectBuilder) {
+    return select(Clauses.of(selectBuilder)).getSelectBuilder();
+  }
+
+  /**
+   * renders the query to {@link Clauses} .
+   *
+   * @param clauses {@link Clauses}
+   * @return clauses ( query structured )
+   */
+  public Clauses select(final Clauses clauses) {
+    final Events.SelectRender event = new Events.SelectRender();
+    event.begin();
+    clauses.bind(template, values);
+    event.commit(entityClass, this::getShape, values);
+
+    return clauses;
+  }
+
+  /**
+   * executes the query, and consumes the result lazily .
+   *
+   * @param <R> the type of result
+   * @param selectBuilder {@link SelectBuilder}
+   * @param fetchSize the count of rows which the driver fetches at once
+   * @param mapper consumes the stream of entities, the statement and the result set closes when this returns
+   * @return the result of mapper
+   * @see Origin#stream(SelectBuilder, int, Function)
+   */
+  public <R> R stream(final SelectBuilder selectBuilder, final int fetchSize, final Function<Stream<ENTITY>, R> mapper) {
+    if (fetchSize < 1) {
+      throw new IllegalArgumentException(String.format("fetch size must be positive, but %d .", fetchSize));
+    }
+
+    return RoutingDataSource.read(() -> Metrics.measure(entityClass, this::getShape, () -> select(selectBuilder), (query, rows) -> query.fetchSize(fetchSize).streamEntity(entityClass, (stream) -> mapper.apply(stream.peek((t) -> rows.increment())))));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return String.format("%s%s", template, values);
+  }
+
+  /**
+   * returns the conditions of this criteria, keyed by column name .
+   *
+   * @return the conditions of this criteria
+   */
+  public Map<String, Where<?>> getWheres() {
+    return wheres.stream().collect(Collectors.toUnmodifiableMap((where) -> where.getVar().getColumnName(), (where) -> where));
+  }
+}
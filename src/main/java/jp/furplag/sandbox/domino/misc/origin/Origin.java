@@ -17,10 +17,27 @@
 package jp.furplag.sandbox.domino.misc.origin;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
+import org.seasar.doma.jdbc.Config;
 import org.seasar.doma.jdbc.builder.SelectBuilder;
 import org.seasar.doma.jdbc.entity.NamingType;
+import jp.furplag.sandbox.domino.misc.cache.EntityCache;
+import jp.furplag.sandbox.domino.misc.cache.ResultCache;
 import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.metrics.Events;
+import jp.furplag.sandbox.domino.misc.metrics.Metrics;
+import jp.furplag.sandbox.domino.misc.routing.RoutingDataSource;
+import jp.furplag.sandbox.domino.misc.vars.Var;
+import jp.furplag.sandbox.stream.Streamr;
 
 /**
  * a simply structure of the {@link org.seasar.doma.Entity} .
@@ -30,6 +47,9 @@ import jp.furplag.sandbox.domino.misc.generic.Inspector;
  */
 public interface Origin extends Serializable {
 
+  /** the system property to specify the default fetch size of {@link #stream(SelectBuilder, Function)} . */
+  static final String fetchSizeProperty = Origin.class.getName() + ".fetchSize";
+
   /**
    * returns an inspector of this entity .
    *
@@ -75,7 +95,52 @@ public interface Origin extends Serializable {
    * @return selectBuilder ( query structured )
    */
   default SelectBuilder select(SelectBuilder selectBuilder, String... excludeFieldNames) {
-    return selectBuilder.sql(selectClause(excludeFieldNames));
+    final Events.SelectRender event = new Events.SelectRender();
+    event.begin();
+    final String selectClause = selectClause(excludeFieldNames);
+    selectBuilder.sql(selectClause);
+    event.commit(getClass(), () -> Criteria.shapeOf(this, excludeFieldNames), 0);
+
+    return selectBuilder;
+  }
+
+  /**
+   * returns the entity of the primary key (s), through {@link EntityCache} if the entity annotated with {@link jp.furplag.sandbox.domino.misc.cache.Cached} .
+   *
+   * @param <ENTITY> the type of entity
+   * @param selectBuilder {@link SelectBuilder}
+   * @param ids the values of primary key (s), in order of the fields
+   * @return the entity, or empty if not exists
+   */
+  @SuppressWarnings({ "unchecked" })
+  default <ENTITY extends Origin> Optional<ENTITY> findById(SelectBuilder selectBuilder, Object... ids) {
+    final Class<ENTITY> entityClass = (Class<ENTITY>) getClass();
+
+    return RoutingDataSource.read(() -> EntityCache.shared().get(entityClass, Arrays.asList(Objects.requireNonNullElse(ids, new Object[] { null })), (keys) -> Metrics.measure(entityClass, () -> Criteria.shapeOfId(this), () -> {
+      selectBuilder.sql(selectClause());
+      final List<Field> identities = Streamr.Filter.filtering(inspector().getFields(), Inspector.Predicates::isIdentity).collect(Collectors.toList());
+      for (int i = 0; i < identities.size(); i++) {
+        final Var<Object> var = Var.varOf(this, identities.get(i));
+        selectBuilder.sql(String.format(i > 0 ? " and %s = " : " where %s = ", var.getColumnName())).param((Class<Object>) (Objects.isNull(keys.get(i)) ? var.getValueType() : keys.get(i).getClass()), keys.get(i));
+      }
+
+      return selectBuilder;
+    }, (query) -> query.getEntitySingleResult(entityClass))));
+  }
+
+  /**
+   * executes the query of this entity through {@link ResultCache}, so that the same query with the same values never reaches the database
+   * until the result expires, or the table is written .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}, results are cached per config
+   * @return the result of query, unmodifiable
+   */
+  @SuppressWarnings({ "unchecked" })
+  default <ENTITY extends Origin> List<ENTITY> selectCached(Config config) {
+    final Class<ENTITY> entityClass = (Class<ENTITY>) getClass();
+
+    return RoutingDataSource.read(() -> Metrics.measure(entityClass, () -> Criteria.shapeOf(this), () -> select(SelectBuilder.newInstance(config)), (query) -> ResultCache.shared().get(config, query, entityClass, List.of(getTableName()), (_query) -> _query.getEntityResultList(entityClass))));
   }
 
   /**
@@ -97,4 +162,81 @@ public interface Origin extends Serializable {
   default String selectColumnNames(String... excludeFieldNames) {
     return "*";
   }
+
+  /**
+   * returns the fetch size of streaming, specified by the system property {@link #fetchSizeProperty} ( default: 1000 ) .
+   *
+   * @return the fetch size of streaming
+   */
+  static int fetchSize() {
+    return Integer.getInteger(fetchSizeProperty, 1000);
+  }
+
+  /**
+   * executes the query of this entity, and consumes the result lazily .
+   *
+   * @param <ENTITY> the type of entity
+   * @param <R> the type of result
+   * @param selectBuilder {@link SelectBuilder}
+   * @param mapper consumes the stream of entities, the statement and the result set closes when this returns
+   * @return the result of mapper
+   * @see #stream(SelectBuilder, int, Function)
+   */
+  default <ENTITY extends Origin, R> R stream(SelectBuilder selectBuilder, Function<Stream<ENTITY>, R> mapper) {
+    return stream(selectBuilder, fetchSize(), mapper);
+  }
+
+  /**
+   * executes the query of this entity, and consumes the result lazily .
+   * <p>
+   * rows are read from the result set one by one in consuming the stream, and the driver fetches at most the fetch size of rows at once,
+   * so that the heap never holds whole of the result .
+   * the stream must not escape from the mapper, because the statement and the result set closes when the mapper returns .
+   * </p>
+   *
+   * @param <ENTITY> the type of entity
+   * @param <R> the type of result
+   * @param selectBuilder {@link SelectBuilder}
+   * @param fetchSize the count of rows which the driver fetches at once
+   * @param mapper consumes the stream of entities, the statement and the result set closes when this returns
+   * @return the result of mapper
+   */
+  @SuppressWarnings({ "unchecked" })
+  default <ENTITY extends Origin, R> R stream(SelectBuilder selectBuilder, int fetchSize, Function<Stream<ENTITY>, R> mapper) {
+    if (fetchSize < 1) {
+      throw new IllegalArgumentException(String.format("fetch size must be positive, but %d .", fetchSize));
+    }
+
+    return RoutingDataSource.read(() -> Metrics.measure(getClass(), () -> Criteria.shapeOf(this), () -> select(selectBuilder), (query, rows) -> query.fetchSize(fetchSize).streamEntity((Class<ENTITY>) getClass(), (stream) -> mapper.apply(stream.peek((t) -> rows.increment())))));
+  }
+
+  /**
+   * executes the query of this entity, with measuring the time to build and to execute it ( see {@link Metrics} ) .
+   * the query executes as a read, which goes to a replica on {@link RoutingDataSource} .
+   *
+   * @param <R> the type of result
+   * @param selectBuilder {@link SelectBuilder}
+   * @param executor executes the query, e.g. {@link SelectBuilder#getEntityResultList(Class)}
+   * @return the result of executor
+   */
+  default <R> R execute(SelectBuilder selectBuilder, Function<SelectBuilder, R> executor) {
+    return RoutingDataSource.read(() -> Metrics.measure(getClass(), () -> Criteria.shapeOf(this), () -> select(selectBuilder), executor));
+  }
+
+  /**
+   * executes the query of this entity, and consumes each entity in the result .
+   *
+   * @param <ENTITY> the type of entity
+   * @param selectBuilder {@link SelectBuilder}
+   * @param fetchSize the count of rows which the driver fetches at once
+   * @param consumer consumes an entity
+   * @see #stream(SelectBuilder, int, Function)
+   */
+  default <ENTITY extends Origin> void forEach(SelectBuilder selectBuilder, int fetchSize, Consumer<ENTITY> consumer) {
+    this.<ENTITY, Void>stream(selectBuilder, fetchSize, (stream) -> {
+      stream.forEach(consumer);
+
+      return null;
+    });
+  }
 }
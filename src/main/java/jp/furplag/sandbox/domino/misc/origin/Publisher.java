@@ -0,0 +1,335 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.cache.CancellableDataSource;
+import lombok.Getter;
+
+/**
+ * publishes the result of a query of {@link Conditionally} as {@link Flow.Publisher}, reading rows from the cursor only as the subscriber requests .
+ * <p>
+ * each subscription executes the query when the subscriber requests at first, and the driver fetches at most the prefetch of rows at once,
+ * so that the heap holds at most the prefetch of rows however slow the subscriber is .
+ * the statement and the result set closes when the result is exhausted, failed or the subscription is cancelled .
+ * cancelling also cancels the query running with {@link java.sql.Statement#cancel()}, if the statement opened through {@link CancellableDataSource} .
+ * </p>
+ * <p>
+ * note that a subscriber which neither requests nor cancels holds the connection ( of the pool ) and the thread of the executor indefinitely,
+ * because the cursor is open until the subscription ends .
+ * </p>
+ * <p>
+ * the query is taken as a snapshot ( {@link Criteria} ) in constructing, and rows are read in the executor ( {@link Async#executor()} by default ),
+ * so that a subscription occupies a thread of the executor until it ends, and runs outside of the transaction of the caller .
+ * </p>
+ *
+ * @author furplag
+ *
+ * @param <ENTITY> the type of entity
+ */
+public final class Publisher<ENTITY extends Conditionally> implements Flow.Publisher<ENTITY> {
+
+  /** the system property to specify the default prefetch . */
+  public static final String prefetchProperty = Publisher.class.getName() + ".prefetch";
+
+  /**
+   * a subscription which reads rows as requested .
+   *
+   * @author furplag
+   *
+   */
+  private final class Cursor implements Flow.Subscription {
+
+    /** the subscriber . */
+    private final Flow.Subscriber<? super ENTITY> subscriber;
+
+    /** guards the states of subscription . */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** signals a change of the states . */
+    private final Condition changed = lock.newCondition();
+
+    /** the count of rows which requested, and not yet published . */
+    private long demand;
+
+    /** true if the subscription has cancelled . */
+    private boolean cancelled;
+
+    /** an error which has to signal to the subscriber . */
+    private Throwable error;
+
+    /** the thread which reads rows, or null if not reading . */
+    private Thread reader;
+
+    /** the mark of statements which the reader opens ( see {@link CancellableDataSource#mark()} ) . */
+    private long mark;
+
+    /**
+     *
+     * @param subscriber the subscriber
+     */
+    private Cursor(final Flow.Subscriber<? super ENTITY> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void request(final long n) {
+      lock.lock();
+      try {
+        if (n < 1) {
+          error = Objects.requireNonNullElseGet(error, () -> new IllegalArgumentException(String.format("request must be positive, but %d .", n)));
+        } else {
+          demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        }
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void cancel() {
+      lock.lock();
+      try {
+        cancelled = true;
+        changed.signalAll();
+        if (Objects.nonNull(reader) && reader != Thread.currentThread()) {
+          CancellableDataSource.cancel(reader, mark);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * waits until the subscriber requests .
+     *
+     * @param consume consumes one of the demand if true
+     * @return true if a row may publish, or false if cancelled or failed
+     */
+    private boolean await(final boolean consume) {
+      lock.lock();
+      try {
+        while (demand < 1 && !cancelled && Objects.isNull(error)) {
+          changed.await();
+        }
+        if (cancelled || Objects.nonNull(error)) {
+          return false;
+        }
+        if (consume && demand < Long.MAX_VALUE) {
+          demand--;
+        }
+
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancelled = true;
+
+        return false;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * returns the error which has to signal, or null if cancelled .
+     *
+     * @param e an error which has occurred in reading
+     * @return the error which has to signal, or null if cancelled
+     */
+    private Throwable errorOf(final Throwable e) {
+      lock.lock();
+      try {
+        if (!cancelled && Objects.isNull(error)) {
+          error = e;
+        }
+
+        return cancelled ? null : error;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * marks the current thread as the reader, or unmarks .
+     *
+     * @param reading true if the current thread starts reading
+     */
+    private void reading(final boolean reading) {
+      lock.lock();
+      try {
+        reader = reading ? Thread.currentThread() : null;
+        mark = CancellableDataSource.mark();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** reads rows and publishes those, until the result is exhausted, failed or cancelled . */
+    private void drain() {
+      final Throwable failure;
+      reading(true);
+      try {
+        failure = !await(false) ? errorOf(null) : criteria.stream(SelectBuilder.newInstance(config), prefetch, (stream) -> {
+          final Iterator<ENTITY> iterator = stream.iterator();
+          while (iterator.hasNext()) {
+            if (!await(true)) {
+              return errorOf(null);
+            }
+            try {
+              subscriber.onNext(iterator.next());
+            } catch (RuntimeException e) {
+              cancel();
+            }
+          }
+
+          return null;
+        });
+      } catch (RuntimeException | Error e) {
+        final Throwable _failure = errorOf(e);
+        if (Objects.nonNull(_failure)) {
+          subscriber.onError(_failure);
+        }
+
+        return;
+      } finally {
+        reading(false);
+      }
+      if (Objects.nonNull(failure)) {
+        subscriber.onError(failure);
+      } else if (!isCancelled()) {
+        subscriber.onComplete();
+      }
+    }
+
+    /**
+     * returns true if the subscription has cancelled .
+     *
+     * @return true if the subscription has cancelled
+     */
+    private boolean isCancelled() {
+      lock.lock();
+      try {
+        return cancelled;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** {@link Config} . */
+  private final Config config;
+
+  /** the snapshot of the query . */
+  private final Criteria<ENTITY> criteria;
+
+  /** the count of rows which the driver fetches at once . */
+  @Getter
+  private final int prefetch;
+
+  /** the executor which reads rows . */
+  private final Executor executor;
+
+  /**
+   *
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @param prefetch the count of rows which the driver fetches at once
+   * @param executor the executor which reads rows
+   */
+  private Publisher(final Config config, final ENTITY entity, final int prefetch, final Executor executor) {
+    if (prefetch < 1) {
+      throw new IllegalArgumentException(String.format("prefetch must be positive, but %d .", prefetch));
+    }
+    this.config = Objects.requireNonNull(config);
+    this.criteria = Criteria.of(entity);
+    this.prefetch = prefetch;
+    this.executor = Objects.requireNonNull(executor);
+  }
+
+  /**
+   * returns the prefetch, specified by the system property {@link #prefetchProperty} ( default: 256 ) .
+   *
+   * @return the prefetch
+   */
+  public static int prefetch() {
+    return Integer.getInteger(prefetchProperty, 256);
+  }
+
+  /**
+   * returns a publisher of the result of the query .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @return {@link Publisher}
+   */
+  public static <ENTITY extends Conditionally> Publisher<ENTITY> of(final Config config, final ENTITY entity) {
+    return of(config, entity, prefetch());
+  }
+
+  /**
+   * returns a publisher of the result of the query .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @param prefetch the count of rows which the driver fetches at once
+   * @return {@link Publisher}
+   */
+  public static <ENTITY extends Conditionally> Publisher<ENTITY> of(final Config config, final ENTITY entity, final int prefetch) {
+    return of(config, entity, prefetch, Async.executor());
+  }
+
+  /**
+   * returns a publisher of the result of the query .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config}
+   * @param entity the entity which has conditions
+   * @param prefetch the count of rows which the driver fetches at once
+   * @param executor the executor which reads rows
+   * @return {@link Publisher}
+   */
+  public static <ENTITY extends Conditionally> Publisher<ENTITY> of(final Config config, final ENTITY entity, final int prefetch, final Executor executor) {
+    return new Publisher<>(config, entity, prefetch, executor);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void subscribe(final Flow.Subscriber<? super ENTITY> subscriber) {
+    final Cursor cursor = new Cursor(Objects.requireNonNull(subscriber));
+    subscriber.onSubscribe(cursor);
+    try {
+      executor.execute(cursor::drain);
+    } catch (RejectedExecutionException e) {
+      final Throwable failure = cursor.errorOf(e);
+      if (Objects.nonNull(failure)) {
+        subscriber.onError(failure);
+      }
+    }
+  }
+}
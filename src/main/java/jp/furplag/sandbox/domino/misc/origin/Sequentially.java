@@ -16,11 +16,17 @@
 package jp.furplag.sandbox.domino.misc.origin;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.stream.Collectors;
 import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.fragment.Clauses;
+import jp.furplag.sandbox.domino.misc.fragment.Template;
 import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.vars.Var;
 import jp.furplag.sandbox.reflect.Reflections;
 import jp.furplag.sandbox.stream.Streamr;
 import jp.furplag.sandbox.trebuchet.Trebuchet;
@@ -77,6 +83,18 @@ public interface Sequentially extends RowOrigin {
       this.descendingOrder = descendingOrder;
     }
 
+    /**
+     * returns order clause in SQL query .
+     *
+     * @param order the order of columns
+     * @return order clause in SQL query
+     */
+    static String clauseOf(final Collection<OrderBy> order) {
+      final String orderColumn = Streamr.stream(order).map(OrderBy::toString).collect(Collectors.joining(", "));
+
+      return orderColumn.isBlank() ? "" : String.format(" order by %s ", orderColumn);
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getKey() {
@@ -107,10 +125,158 @@ public interface Sequentially extends RowOrigin {
    * @return order clause in SQL query
    */
   default String orderClause() {
-    final String orderColumn = Streamr.stream(getOrder()).map(OrderBy::toString).collect(Collectors.joining(", "));
+    return orderClause(getOrder());
+  }
 
-    return orderColumn.isBlank() ? "" : String.format(" order by %s ", orderColumn);
+  /**
+   * returns order clause in SQL query .
+   *
+   * @param order the order of columns
+   * @return order clause in SQL query
+   */
+  private static String orderClause(final Collection<OrderBy> order) {
+    return OrderBy.clauseOf(order);
   }
 
-}
+  /**
+   * returns the order of keyset pagination, that is {@link #getOrder()} followed by the primary key (s) as tiebreaker .
+   * <p>
+   * the tiebreaker follows the direction of the last order, or ascending if unordered .
+   * </p>
+   *
+   * @return the order of keyset pagination
+   */
+  default List<OrderBy> seekOrder() {
+    final List<OrderBy> order = new ArrayList<>(Objects.requireNonNullElse(getOrder(), List.of()));
+    final boolean descendingOrder = !order.isEmpty() && order.get(order.size() - 1).getValue();
+    // @formatter:off
+    Streamr.Filter.filtering(inspector().getFields(), Inspector.Predicates::isIdentity)
+      .map((field) -> new OrderBy(inspector().getName(field), descendingOrder))
+      .filter((orderBy) -> !order.contains(orderBy))
+      .collect(Collectors.toList()).forEach(order::add);
+    // @formatter:on
+
+    return order;
+  }
+
+  /**
+   * returns the values of {@link #seekOrder()} in the row, that is the last row of previous page .
+   *
+   * @param lastRow the last row of previous page
+   * @return the values of {@link #seekOrder()}
+   */
+  default List<Object> seekKeys(Sequentially lastRow) {
+    final List<Object> keys = new ArrayList<>();
+    for (OrderBy orderBy : seekOrder()) {
+      final Field field = Objects.requireNonNull(lastRow).inspector().getFieldByColumnName(orderBy.getKey());
+      if (Objects.isNull(field)) {
+        throw new IllegalArgumentException(String.format("the column \"%s\" does not related to any field .", orderBy.getKey()));
+      }
+      keys.add(Var.varOf(lastRow, field).getValue());
+    }
+
+    return keys;
+  }
+
+  /**
+   * constructing simple SQL query, which returns the rows after the last row of previous page .
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @param lastRow the last row of previous page, or null if the first page
+   * @param excludeFieldNames field name (s) which excludes from result
+   * @return selectBuilder ( query structured )
+   */
+  default SelectBuilder selectAfter(SelectBuilder selectBuilder, Sequentially lastRow, String... excludeFieldNames) {
+    return selectAfter(selectBuilder, Objects.isNull(lastRow) ? List.of() : seekKeys(lastRow), excludeFieldNames);
+  }
+
+  /**
+   * constructing simple SQL query, which returns the rows after the keys .
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @param keys the values of {@link #seekOrder()} in the last row of previous page, or empty if the first page
+   * @param excludeFieldNames field name (s) which excludes from result
+   * @return selectBuilder ( query structured )
+   */
+  default SelectBuilder selectAfter(SelectBuilder selectBuilder, List<?> keys, String... excludeFieldNames) {
+    return selectAfter(Clauses.of(selectBuilder), keys, excludeFieldNames).getSelectBuilder();
+  }
+
+  /**
+   * constructing simple SQL query, which returns the rows after the keys .
+   *
+   * @param clauses {@link Clauses}
+   * @param keys the values of {@link #seekOrder()} in the last row of previous page, or empty if the first page
+   * @param excludeFieldNames field name (s) which excludes from result
+   * @return clauses ( query structured )
+   */
+  default Clauses selectAfter(Clauses clauses, List<?> keys, String... excludeFieldNames) {
+    return seekClause(whereClause(clauses.sql(selectClause(excludeFieldNames))), keys).sql(orderClause(seekOrder()));
+  }
+
+  /**
+   * appends where clause in SQL query, nothing to do unless the entity has conditions .
+   *
+   * @param clauses {@link Clauses}
+   * @param excludeFieldNames field name (s) which excludes from condition
+   * @return clauses ( query structured )
+   */
+  default Clauses whereClause(Clauses clauses, String... excludeFieldNames) {
+    return clauses;
+  }
 
+  /**
+   * appends the condition of keyset pagination .
+   * <p>
+   * renders a row value comparison ( e.g. "(a, b) &gt; (?, ?)" ) if all the directions are the same,
+   * and renders an expanded predicate ( e.g. "(a &gt; ? or (a = ? and b &lt; ?))" ) if not .
+   * </p>
+   *
+   * @param clauses {@link Clauses}
+   * @param keys the values of {@link #seekOrder()} in the last row of previous page, or empty if the first page
+   * @return clauses ( query structured )
+   */
+  default Clauses seekClause(Clauses clauses, List<?> keys) {
+    if (Objects.isNull(keys) || keys.isEmpty()) {
+      return clauses;
+    }
+    final List<OrderBy> order = seekOrder();
+    if (order.size() != keys.size()) {
+      throw new IllegalArgumentException(String.format("the count of keys must be %d, but %d .", order.size(), keys.size()));
+    } else if (keys.contains(null)) {
+      throw new IllegalArgumentException("keys must not be null .");
+    }
+    final List<Class<?>> types = new ArrayList<>();
+    for (int i = 0; i < order.size(); i++) {
+      final Field field = inspector().getFieldByColumnName(order.get(i).getKey());
+      types.add(Objects.isNull(field) ? keys.get(i).getClass() : Var.varOf(this, field).getValueType());
+    }
+    final Template.Builder template = Template.builder();
+    final List<Object> values = new ArrayList<>();
+    if (order.stream().map(OrderBy::getValue).distinct().count() < 2) {
+      final String operator = order.get(0).getValue() ? " < " : " > ";
+      template.sql(String.format(order.size() > 1 ? " (%s)%s(" : " %s%s", order.stream().map(OrderBy::getKey).collect(Collectors.joining(", ")), operator));
+      for (int i = 0; i < order.size(); i++) {
+        if (i > 0) {
+          template.sql(", ");
+        }
+        template.param(types.get(i));
+        values.add(keys.get(i));
+      }
+      template.sql(order.size() > 1 ? ") " : " ");
+    } else {
+      for (int i = 0; i < order.size(); i++) {
+        final String columnName = order.get(i).getKey();
+        template.sql(String.format(" (%s %s ", columnName, order.get(i).getValue() ? "<" : ">")).param(types.get(i));
+        values.add(keys.get(i));
+        if (i < order.size() - 1) {
+          template.sql(String.format(" or (%s = ", columnName)).param(types.get(i)).sql(" and");
+          values.add(keys.get(i));
+        }
+      }
+      template.sql(")".repeat(order.size() * 2 - 1)).sql(" ");
+    }
+
+    return clauses.where(template.build(), values);
+  }
+}
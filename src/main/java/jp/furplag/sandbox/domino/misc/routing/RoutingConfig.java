@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.routing;
+
+import java.util.List;
+import java.util.Objects;
+import javax.sql.DataSource;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.tx.LocalTransaction;
+import org.seasar.doma.jdbc.tx.LocalTransactionDataSource;
+import org.seasar.doma.jdbc.tx.LocalTransactionManager;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+import lombok.Getter;
+
+/**
+ * a {@link Config} which sends reads of {@link jp.furplag.sandbox.domino.misc.origin.Origin} to read replicas, and writes to the primary .
+ * <p>
+ * transactions are the ones of the primary, and reads in a transaction go to the primary ( read-your-writes ) .
+ * </p>
+ *
+ * <pre>
+ * final RoutingConfig config = new RoutingConfig(new H2Dialect(), new LocalTransactionDataSource(primaryUrl, user, password), List.of(replica1, replica2), RoutingDataSource.Balancer.LeastOutstanding);
+ * new Entity().where("id", Where.Operator.Equal, 1L).execute(SelectBuilder.newInstance(config), (query) -&gt; query.getEntityResultList(Entity.class)); // replica
+ * config.getTransactionManager().required(() -&gt; { // primary, reads and writes . });
+ * </pre>
+ *
+ * @author furplag
+ *
+ */
+public class RoutingConfig implements Config {
+
+  /** {@link Dialect} . */
+  @Getter
+  private final Dialect dialect;
+
+  /** {@link RoutingDataSource} . */
+  @Getter
+  private final RoutingDataSource dataSource;
+
+  /** the transaction of the primary . */
+  private final LocalTransaction transaction;
+
+  /** {@link TransactionManager} of the primary . */
+  @Getter
+  private final TransactionManager transactionManager;
+
+  /**
+   *
+   * @param dialect {@link Dialect}
+   * @param primary the primary
+   * @param replicas read replicas
+   * @param balancer the strategy to choose a replica
+   */
+  public RoutingConfig(final Dialect dialect, final LocalTransactionDataSource primary, final List<DataSource> replicas, final RoutingDataSource.Balancer balancer) {
+    this.dialect = Objects.requireNonNull(dialect);
+    transaction = Objects.requireNonNull(primary).getLocalTransaction(getJdbcLogger());
+    transactionManager = new LocalTransactionManager(transaction);
+    dataSource = new RoutingDataSource(primary, replicas, balancer, transaction::isActive);
+  }
+}
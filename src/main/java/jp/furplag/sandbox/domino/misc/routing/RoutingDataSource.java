@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.routing;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import lombok.Getter;
+
+/**
+ * a {@link DataSource} which sends reads to replicas, and others to the primary .
+ * <p>
+ * reads are the executions in {@link #read(Supplier)}, which {@link jp.furplag.sandbox.domino.misc.origin.Origin} uses to execute
+ * queries . reads in the transaction of the primary go to the primary, so that those can read own writes . a replica which failed to
+ * connect is skipped, and the primary serves the read if no replicas are available .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class RoutingDataSource implements DataSource {
+
+  /**
+   * the strategy to choose a replica .
+   *
+   * @author furplag
+   *
+   */
+  public static enum Balancer {
+    /** in turn . */
+    RoundRobin,
+    /** the one which has the least count of connections in use, in turn if the same . */
+    LeastOutstanding;
+  }
+
+  /** the depth of reads in the current thread . */
+  private static final ThreadLocal<int[]> reading = ThreadLocal.withInitial(() -> new int[] { 0 });
+
+  /** the primary . */
+  @Getter
+  private final DataSource primary;
+
+  /** read replicas . */
+  @Getter
+  private final List<DataSource> replicas;
+
+  /** the strategy to choose a replica . */
+  @Getter
+  private final Balancer balancer;
+
+  /** returns true if the current thread is in the transaction of the primary . */
+  private final BooleanSupplier sticky;
+
+  /** count of connections in use per replica . */
+  private final AtomicIntegerArray outstanding;
+
+  /** the sequence of choice . */
+  private final AtomicInteger sequence = new AtomicInteger();
+
+  /**
+   *
+   * @param primary the primary
+   * @param replicas read replicas
+   * @param balancer the strategy to choose a replica
+   * @param sticky returns true if the current thread is in the transaction of the primary
+   */
+  public RoutingDataSource(final DataSource primary, final List<DataSource> replicas, final Balancer balancer, final BooleanSupplier sticky) {
+    this.primary = Objects.requireNonNull(primary);
+    this.replicas = List.copyOf(replicas);
+    this.balancer = Objects.requireNonNullElse(balancer, Balancer.RoundRobin);
+    this.sticky = Objects.requireNonNullElse(sticky, () -> false);
+    outstanding = new AtomicIntegerArray(this.replicas.size());
+  }
+
+  /**
+   * executes the supplier as a read, connections in it go to a replica .
+   *
+   * @param <T> the type of result
+   * @param supplier the execution of query
+   * @return the result of supplier
+   */
+  public static <T> T read(final Supplier<T> supplier) {
+    final int[] depth = reading.get();
+    depth[0]++;
+    try {
+      return supplier.get();
+    } finally {
+      depth[0]--;
+    }
+  }
+
+  /**
+   * returns true if the current thread is in {@link #read(Supplier)} .
+   *
+   * @return true if the current thread is in {@link #read(Supplier)}
+   */
+  public static boolean isReading() {
+    return reading.get()[0] > 0;
+  }
+
+  /**
+   * returns the index of replica to connect first .
+   *
+   * @return the index of replica
+   */
+  private int choose() {
+    final int start = Math.floorMod(sequence.getAndIncrement(), replicas.size());
+    if (Balancer.RoundRobin.equals(balancer)) {
+      return start;
+    }
+    int chosen = start;
+    for (int i = 1; i < replicas.size(); i++) {
+      final int index = (start + i) % replicas.size();
+      if (outstanding.get(index) < outstanding.get(chosen)) {
+        chosen = index;
+      }
+    }
+
+    return chosen;
+  }
+
+  /**
+   * returns a connection of the replica, which counts the connection in use until closed .
+   *
+   * @param index the index of replica
+   * @return {@link Connection}
+   * @throws SQLException failed to connect
+   */
+  private Connection connect(final int index) throws SQLException {
+    final Connection connection = replicas.get(index).getConnection();
+    outstanding.incrementAndGet(index);
+    final AtomicBoolean closed = new AtomicBoolean();
+
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+      if ("close".equals(method.getName()) && method.getParameterCount() < 1 && closed.compareAndSet(false, true)) {
+        outstanding.decrementAndGet(index);
+      }
+      try {
+        return method.invoke(connection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (replicas.isEmpty() || !isReading() || sticky.getAsBoolean()) {
+      return primary.getConnection();
+    }
+    final int chosen = choose();
+    for (int i = 0; i < replicas.size(); i++) {
+      try {
+        return connect((chosen + i) % replicas.size());
+      } catch (SQLException e) {
+        // try next .
+      }
+    }
+
+    return primary.getConnection();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection(final String username, final String password) throws SQLException {
+    return primary.getConnection(username, password);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return primary.getLogWriter();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setLogWriter(final PrintWriter out) throws SQLException {
+    primary.setLogWriter(out);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setLoginTimeout(final int seconds) throws SQLException {
+    primary.setLoginTimeout(seconds);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return primary.getLoginTimeout();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return primary.getParentLogger();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> T unwrap(final Class<T> iface) throws SQLException {
+    return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || primary.isWrapperFor(iface);
+  }
+}
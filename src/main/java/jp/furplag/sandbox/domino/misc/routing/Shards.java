@@ -0,0 +1,359 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.routing;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.generic.Accessor;
+import jp.furplag.sandbox.domino.misc.generic.Inspector;
+import jp.furplag.sandbox.domino.misc.origin.Conditionally;
+import jp.furplag.sandbox.domino.misc.origin.Criteria;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+import jp.furplag.sandbox.domino.misc.origin.Sequentially;
+import jp.furplag.sandbox.domino.misc.vars.Var;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+import jp.furplag.sandbox.stream.Streamr;
+import lombok.Getter;
+
+/**
+ * databases which share rows of entities by the hash of the primary key (s) .
+ * <p>
+ * a query which has the condition of "=" on all of the primary key (s) goes to the one shard, and others go to all shards in parallel .
+ * the results of all shards are merged in the order of {@link Sequentially#getOrder()}, and each shard returns at most the limit of rows,
+ * so that the count of rows to merge is at most the limit times the count of shards . the order must consist of columns of the entity,
+ * which values ( or the values of {@link org.seasar.doma.Domain} ) are {@link Comparable} .
+ * nulls are the highest if the dialect ( {@link org.seasar.doma.jdbc.dialect.Dialect#getName()} ) sorts nulls so by default
+ * ( db2, oracle and postgres ), or the lowest otherwise, so that all shards must be the same kind of those .
+ * </p>
+ * <p>
+ * note that the merge compares values in Java ( {@link Comparable#compareTo(Object)}, e.g. strings in the order of UTF-16 code units ),
+ * not in the collation of the database . if the collation of an order column differs from that ( e.g. case-insensitive, or locale-aware ),
+ * the merged order ( and which rows survive the limit ) may differ from the order which one database returns . order by numbers, dates,
+ * or strings in a binary ( "C" ) collation to get the same order .
+ * </p>
+ * <p>
+ * queries execute in other threads, so that those run outside of the transaction of the caller .
+ * </p>
+ *
+ * @author furplag
+ *
+ */
+public final class Shards {
+
+  /** the executor of queries which shared in process . */
+  private static final ExecutorService sharedExecutor = Executors.newCachedThreadPool((runnable) -> {
+    final Thread thread = new Thread(runnable, Shards.class.getSimpleName());
+    thread.setDaemon(true);
+
+    return thread;
+  });
+
+  /** the names of dialects which sort nulls as the highest by default . */
+  private static final Set<String> nullsHighestDialects = Set.of("db2", "oracle", "postgres");
+
+  /** {@link Config} per shard . */
+  @Getter
+  private final List<Config> configs;
+
+  /** true if shards sort nulls as the highest . */
+  private final boolean nullsHighest;
+
+  /** the executor of queries . */
+  private final ExecutorService executor;
+
+  /**
+   *
+   * @param configs {@link Config} per shard
+   * @param executor the executor of queries
+   */
+  private Shards(final List<Config> configs, final ExecutorService executor) {
+    if (Objects.requireNonNull(configs).isEmpty()) {
+      throw new IllegalArgumentException("shards must not be empty .");
+    }
+    this.configs = List.copyOf(configs);
+    nullsHighest = nullsHighest(this.configs.get(0));
+    if (this.configs.stream().anyMatch((config) -> nullsHighest(config) != nullsHighest)) {
+      throw new IllegalArgumentException("shards must sort nulls in the same way .");
+    }
+    this.executor = Objects.requireNonNull(executor);
+  }
+
+  /**
+   * returns shards which execute queries in the shared executor .
+   *
+   * @param configs {@link Config} per shard, the order must never change after rows are written
+   * @return {@link Shards}
+   */
+  public static Shards of(final List<Config> configs) {
+    return of(configs, sharedExecutor);
+  }
+
+  /**
+   * returns shards .
+   *
+   * @param configs {@link Config} per shard, the order must never change after rows are written
+   * @param executor the executor of queries
+   * @return {@link Shards}
+   */
+  public static Shards of(final List<Config> configs, final ExecutorService executor) {
+    return new Shards(configs, executor);
+  }
+
+  /**
+   * returns true if the database sorts nulls as the highest by default .
+   *
+   * @param config {@link Config}
+   * @return true if the database sorts nulls as the highest by default
+   */
+  static boolean nullsHighest(final Config config) {
+    return nullsHighestDialects.contains(config.getDialect().getName());
+  }
+
+  /**
+   * returns the fields of primary key (s) .
+   *
+   * @param entityClass the type of entity
+   * @return the fields of primary key (s)
+   */
+  private static List<Field> identities(final Class<? extends Origin> entityClass) {
+    final List<Field> identities = Streamr.Filter.filtering(Inspector.of(entityClass).getFields(), Inspector.Predicates::isIdentity).collect(Collectors.toList());
+    if (identities.isEmpty()) {
+      throw new IllegalArgumentException(String.format("the entity \"%s\" has no primary key .", entityClass.getSimpleName()));
+    }
+
+    return identities;
+  }
+
+  /**
+   * returns the index of shard of the primary key (s) .
+   *
+   * @param ids the values of primary key (s), arrays ( e.g. byte[] ) hash by the content
+   * @return the index of shard
+   */
+  int shardOf(final List<?> ids) {
+    int hash = 1;
+    for (Object id : ids) {
+      final Object _id = id instanceof Integer || id instanceof Short || id instanceof Byte ? (Object) ((Number) id).longValue() : id;
+      hash = 31 * hash + (Objects.nonNull(_id) && _id.getClass().isArray() ? Arrays.deepHashCode(new Object[] { _id }) : Objects.hashCode(_id));
+    }
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+
+    return Math.floorMod(hash, configs.size());
+  }
+
+  /**
+   * returns the index of shard of the entity .
+   *
+   * @param entity the entity
+   * @return the index of shard
+   */
+  public int shardOf(final Origin entity) {
+    return shardOf(identities(entity.getClass()).stream().map((field) -> Var.varOf(entity, field).getValue()).collect(Collectors.toList()));
+  }
+
+  /**
+   * returns the {@link Config} of the shard of the entity, e.g. to write it .
+   *
+   * @param entity the entity
+   * @return {@link Config}
+   */
+  public Config configOf(final Origin entity) {
+    return configs.get(shardOf(entity));
+  }
+
+  /**
+   * returns entities grouped by the shard, e.g. to write those with {@link jp.furplag.sandbox.domino.misc.origin.Bulk} .
+   *
+   * @param <ENTITY> the type of entity
+   * @param entities entities
+   * @return entities keyed by {@link Config} of the shard
+   */
+  public <ENTITY extends Origin> Map<Config, List<ENTITY>> partition(final Collection<ENTITY> entities) {
+    final Map<Config, List<ENTITY>> partitions = new LinkedHashMap<>();
+    Streamr.stream(entities).forEach((entity) -> partitions.computeIfAbsent(configOf(entity), (config) -> new ArrayList<>()).add(entity));
+
+    return partitions;
+  }
+
+  /**
+   * returns the index of shard which the query goes to .
+   *
+   * @param entity the entity which has conditions
+   * @return the index of shard, or empty if the query goes to all shards
+   */
+  OptionalInt routeOf(final Conditionally entity) {
+    final List<Object> ids = new ArrayList<>();
+    for (Field field : identities(entity.getClass())) {
+      final Where<?> where = entity.getWheres().get(entity.inspector().getName(field));
+      if (Objects.isNull(where) || !Where.Operator.Equal.equals(where.getOperator()) || where.values().size() != 1 || Objects.isNull(where.values().get(0))) {
+        return OptionalInt.empty();
+      }
+      ids.add(where.values().get(0));
+    }
+
+    return OptionalInt.of(shardOf(ids));
+  }
+
+  /**
+   * executes the query of the entity .
+   *
+   * @param <ENTITY> the type of entity
+   * @param entity the entity which has conditions
+   * @return the entities
+   */
+  public <ENTITY extends Conditionally> List<ENTITY> select(final ENTITY entity) {
+    return select(entity, Integer.MAX_VALUE);
+  }
+
+  /**
+   * executes the query of the entity .
+   *
+   * @param <ENTITY> the type of entity
+   * @param entity the entity which has conditions
+   * @param limit the maximum count of entities
+   * @return the entities, in the order of the entity
+   */
+  public <ENTITY extends Conditionally> List<ENTITY> select(final ENTITY entity, final int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException(String.format("limit must be positive, but %d .", limit));
+    }
+    final Criteria<ENTITY> criteria = Criteria.of(entity);
+    final OptionalInt shard = routeOf(entity);
+    if (shard.isPresent()) {
+      return selectIn(configs.get(shard.getAsInt()), criteria, limit);
+    }
+    final Comparator<ENTITY> comparator = comparatorOf(entity, nullsHighest);
+    final List<CompletableFuture<List<ENTITY>>> futures = new ArrayList<>();
+    for (Config config : configs) {
+      futures.add(CompletableFuture.supplyAsync(() -> selectIn(config, criteria, limit), executor));
+    }
+    final List<List<ENTITY>> results = new ArrayList<>();
+    try {
+      for (CompletableFuture<List<ENTITY>> future : futures) {
+        results.add(future.join());
+      }
+    } catch (CompletionException e) {
+      futures.forEach((future) -> future.cancel(true));
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+
+    return merge(results, comparator, limit);
+  }
+
+  /**
+   * executes the query in the shard .
+   *
+   * @param <ENTITY> the type of entity
+   * @param config {@link Config} of the shard
+   * @param criteria {@link Criteria}
+   * @param limit the maximum count of entities
+   * @return the entities
+   */
+  private static <ENTITY extends Conditionally> List<ENTITY> selectIn(final Config config, final Criteria<ENTITY> criteria, final int limit) {
+    final SelectBuilder selectBuilder = SelectBuilder.newInstance(config);
+    if (limit < Integer.MAX_VALUE) {
+      selectBuilder.maxRows(limit);
+    }
+
+    return criteria.stream(selectBuilder, Origin.fetchSize(), (stream) -> stream.limit(limit).collect(Collectors.toList()));
+  }
+
+  /**
+   * returns the comparator in the order of the entity .
+   *
+   * @param <ENTITY> the type of entity
+   * @param entity the entity
+   * @param nullsHighest nulls are the highest if true, or the lowest
+   * @return the comparator in the order of the entity
+   * @throws IllegalArgumentException if the order has a column which is not a {@link Comparable} field of the entity
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  static <ENTITY extends Sequentially> Comparator<ENTITY> comparatorOf(final ENTITY entity, final boolean nullsHighest) {
+    final Inspector<?> inspector = entity.inspector();
+    Comparator<ENTITY> comparator = (a, b) -> 0;
+    for (Sequentially.OrderBy orderBy : entity.getOrder()) {
+      final Field field = inspector.getFieldByColumnName(orderBy.getKey());
+      if (Objects.isNull(field)) {
+        throw new IllegalArgumentException(String.format("the order \"%s\" is not a column of the entity \"%s\", which the shards could not merge in .", orderBy.getKey(), inspector.getName()));
+      }
+      final Accessor accessor = inspector.getAccessor(field);
+      final Class<?> valueType = Objects.requireNonNullElse(accessor.getField(), field).getType();
+      if (!valueType.isPrimitive() && !Comparable.class.isAssignableFrom(valueType)) {
+        throw new IllegalArgumentException(String.format("the order \"%s\" of the entity \"%s\" is not comparable, which the shards could not merge in .", orderBy.getKey(), inspector.getName()));
+      }
+      final Comparator<Comparable> values = nullsHighest ? Comparator.nullsLast(Comparator.naturalOrder()) : Comparator.nullsFirst(Comparator.naturalOrder());
+      final Comparator<ENTITY> column = Comparator.comparing((t) -> (Comparable) accessor.getValue(accessor.getOwner(t)), values);
+      comparator = comparator.thenComparing(orderBy.getValue() ? column.reversed() : column);
+    }
+
+    return comparator;
+  }
+
+  /**
+   * merges sorted lists into one, with k-way merge .
+   *
+   * @param <ENTITY> the type of entity
+   * @param results the sorted lists
+   * @param comparator the order of lists
+   * @param limit the maximum count of entities
+   * @return the merged list
+   */
+  static <ENTITY> List<ENTITY> merge(final List<List<ENTITY>> results, final Comparator<ENTITY> comparator, final int limit) {
+    // @formatter:off
+    final PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, results.size()), (a, b) -> {
+      final int compared = comparator.compare(results.get(a[0]).get(a[1]), results.get(b[0]).get(b[1]));
+
+      return compared != 0 ? compared : Integer.compare(a[0], b[0]);
+    });
+    // @formatter:on
+    for (int i = 0; i < results.size(); i++) {
+      if (!results.get(i).isEmpty()) {
+        cursors.add(new int[] { i, 0 });
+      }
+    }
+    final List<ENTITY> merged = new ArrayList<>();
+    while (!cursors.isEmpty() && merged.size() < limit) {
+      final int[] cursor = cursors.poll();
+      merged.add(results.get(cursor[0]).get(cursor[1]));
+      if (++cursor[1] < results.get(cursor[0]).size()) {
+        cursors.add(cursor);
+      }
+    }
+
+    return merged;
+  }
+}
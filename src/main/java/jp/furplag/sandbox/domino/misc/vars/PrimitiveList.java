@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.vars;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * an unmodifiable {@link java.util.List} view of a primitive array, which never boxes the values until read .
+ * <p>
+ * binding still boxes each value once, because {@link org.seasar.doma.jdbc.builder.SelectBuilder#params(Class, java.util.List)} wraps objects,
+ * but the values are read straight from the array at that time, and never copied into an intermediate list of boxes .
+ * </p>
+ *
+ * @author furplag
+ *
+ * @param <T> the boxed type of values
+ */
+abstract class PrimitiveList<T> extends AbstractList<T> implements RandomAccess {
+
+  /**
+   * a view of long values .
+   *
+   * @author furplag
+   *
+   */
+  static final class OfLong extends PrimitiveList<Long> {
+
+    /** the values . */
+    private final long[] values;
+
+    /**
+     *
+     * @param values the values, copied
+     */
+    OfLong(final long... values) {
+      this.values = values == null ? new long[0] : values.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long get(final int index) {
+      return values[index];
+    }
+
+    /**
+     * returns the value at the index, without boxing .
+     *
+     * @param index the index
+     * @return the value
+     */
+    long getLong(final int index) {
+      return values[index];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+      return values.length;
+    }
+  }
+
+  /**
+   * a view of int values .
+   *
+   * @author furplag
+   *
+   */
+  static final class OfInt extends PrimitiveList<Integer> {
+
+    /** the values . */
+    private final int[] values;
+
+    /**
+     *
+     * @param values the values, copied
+     */
+    OfInt(final int... values) {
+      this.values = values == null ? new int[0] : values.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Integer get(final int index) {
+      return values[index];
+    }
+
+    /**
+     * returns the value at the index, without boxing .
+     *
+     * @param index the index
+     * @return the value
+     */
+    int getInt(final int index) {
+      return values[index];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+      return values.length;
+    }
+  }
+}
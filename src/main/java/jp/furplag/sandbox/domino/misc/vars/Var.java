@@ -17,13 +17,11 @@ package jp.furplag.sandbox.domino.misc.vars;
 
 import java.lang.reflect.Field;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
 import org.seasar.doma.Embeddable;
 import com.fasterxml.jackson.annotation.JsonGetter;
+import jp.furplag.sandbox.domino.misc.generic.Accessor;
 import jp.furplag.sandbox.domino.misc.generic.Inspector.Predicates;
-import jp.furplag.sandbox.reflect.Reflections;
-import jp.furplag.sandbox.reflect.SavageReflection;
 import jp.furplag.sandbox.stream.Streamr;
 import jp.furplag.sandbox.trebuchet.Trebuchet;
 import jp.furplag.sandbox.tuple.Tag;
@@ -50,13 +48,67 @@ public interface Var<T> extends Comparable<Var<?>>, Tag<String, T> {
 
     @SafeVarargs
     private AnyOf(jp.furplag.sandbox.domino.misc.origin.Origin entity, Field field, T... values) {
+      this(entity, field, Streamr.stream(values).collect(Collectors.toUnmodifiableList()));
+    }
+
+    private AnyOf(jp.furplag.sandbox.domino.misc.origin.Origin entity, Field field, List<T> values) {
       super(entity, field);
-      this.values = Streamr.stream(values).collect(Collectors.toUnmodifiableList());
+      this.values = values;
+    }
+  }
+
+  /**
+   * a variable of int values, which holds the values in a primitive array .
+   *
+   * @author furplag
+   *
+   */
+  @EqualsAndHashCode(callSuper = true)
+  @ToString(callSuper = true)
+  static final class Ints extends AnyOf<Integer> {
+
+    private Ints(jp.furplag.sandbox.domino.misc.origin.Origin entity, Field field, int... values) {
+      super(entity, field, new PrimitiveList.OfInt(values));
+    }
+
+    /**
+     * returns the value at the index, without boxing .
+     *
+     * @param index the index
+     * @return the value
+     */
+    public int getInt(final int index) {
+      return ((PrimitiveList.OfInt) getValues()).getInt(index);
+    }
+  }
+
+  /**
+   * a variable of long values, which holds the values in a primitive array .
+   *
+   * @author furplag
+   *
+   */
+  @EqualsAndHashCode(callSuper = true)
+  @ToString(callSuper = true)
+  static final class Longs extends AnyOf<Long> {
+
+    private Longs(jp.furplag.sandbox.domino.misc.origin.Origin entity, Field field, long... values) {
+      super(entity, field, new PrimitiveList.OfLong(values));
+    }
+
+    /**
+     * returns the value at the index, without boxing .
+     *
+     * @param index the index
+     * @return the value
+     */
+    public long getLong(final int index) {
+      return ((PrimitiveList.OfLong) getValues()).getLong(index);
     }
   }
 
   @EqualsAndHashCode(of = {"field"})
-  @ToString(exclude = {"entity", "mysterio"})
+  @ToString(exclude = {"entity", "mysterio", "accessor"})
   static abstract class Origin<T> implements Var<T> {
 
     /** an instance of {@link jp.furplag.sandbox.domino.misc.origin.Origin}, or the {@link Embeddable} field value . */
@@ -66,6 +118,9 @@ public interface Var<T> extends Comparable<Var<?>>, Tag<String, T> {
     /** an instance of {@link jp.furplag.sandbox.domino.misc.origin.Origin}, or the {@link Embeddable} field value . */
     private final Object mysterio;
 
+    /** reads the value of {@link #field} from {@link #mysterio} . */
+    private final Accessor accessor;
+
     /** the field in this {@link #entity} which related to database column . */
     @Getter
     @NonNull
@@ -83,16 +138,9 @@ public interface Var<T> extends Comparable<Var<?>>, Tag<String, T> {
      */
     private Origin(jp.furplag.sandbox.domino.misc.origin.Origin entity, Field field) {
       this.entity = entity;
-      if (Predicates.isDomain(field)) {
-        mysterio = SavageReflection.get(entity, field);
-        this.field = Reflections.getField(field.getType(), "value");
-      } else if (Predicates.isEmbeddableField(field)) {
-        mysterio = SavageReflection.get(entity, Streamr.Filter.filtering(Reflections.getFields(entity), (_field) -> _field.getType().equals(field.getDeclaringClass()), (_field) -> Objects.nonNull(Reflections.isAssignable(_field.getType(), field))).findFirst().orElse(null));
-        this.field = field;
-      } else {
-        mysterio = getEntity();
-        this.field = field;
-      }
+      accessor = entity.inspector().getAccessor(field);
+      mysterio = accessor.getOwner(entity);
+      this.field = accessor.getField();
       this.columnName = entity.inspector().getName(field);
     }
 
@@ -100,10 +148,18 @@ public interface Var<T> extends Comparable<Var<?>>, Tag<String, T> {
     @Override
     @SuppressWarnings({"unchecked"})
     public T getValue() {
-      return (T) SavageReflection.get(mysterio, getField());
+      return (T) accessor.getValue(mysterio);
     }
   }
 
+  /**
+   * a variable of the range, which still holds boxed values deliberately .
+   * two values bind as two parameters, so there is nothing to save by the primitive specialization .
+   *
+   * @author furplag
+   *
+   * @param <T> the type of value
+   */
   @EqualsAndHashCode(callSuper = true)
   @ToString(callSuper = true, exclude = {"valueCount"})
   static final class Range<T extends Comparable<T>> extends Origin<T> {
@@ -131,6 +187,14 @@ public interface Var<T> extends Comparable<Var<?>>, Tag<String, T> {
     }
   }
 
+  /**
+   * a variable of a single value, which still holds the boxed value deliberately .
+   * binding boxes the value once in any way, so there is nothing to save by the primitive specialization .
+   *
+   * @author furplag
+   *
+   * @param <T> the type of value
+   */
   @EqualsAndHashCode(callSuper = true)
   @ToString(callSuper = true)
   static class Single<T> extends Origin<T> {
@@ -153,6 +217,14 @@ public interface Var<T> extends Comparable<Var<?>>, Tag<String, T> {
     return new Single<>(entity, field, value);
   }
 
+  static Var<Integer> intsOf(final jp.furplag.sandbox.domino.misc.origin.Origin entity, final Field field, final int... values) {
+    return values == null || values.length < 1 ? new Origin<Integer>(entity, field) {} : new Ints(entity, field, values);
+  }
+
+  static Var<Long> longsOf(final jp.furplag.sandbox.domino.misc.origin.Origin entity, final Field field, final long... values) {
+    return values == null || values.length < 1 ? new Origin<Long>(entity, field) {} : new Longs(entity, field, values);
+  }
+
   @SafeVarargs
   static <T> Var<T> varOf(final jp.furplag.sandbox.domino.misc.origin.Origin entity, final Field field, final T... values) {
     return values == null || values.length < 1 ? new Origin<>(entity, field) {} : new AnyOf<>(entity, field, values);
@@ -15,11 +15,16 @@
  */
 package jp.furplag.sandbox.domino.misc.vars;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
 import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.fragment.Template;
 import jp.furplag.sandbox.trebuchet.Trebuchet;
 import lombok.Getter;
 import lombok.NonNull;
@@ -84,13 +89,111 @@ public interface Where<T> extends Comparable<Where<?>> {
     }
   }
 
+  /**
+   * the way to render the values of "in" .
+   *
+   * @author furplag
+   *
+   */
+  public static enum Strategy {
+
+    /** renders all the values as is, so each count of values makes a distinct query . */
+    Exact,
+
+    /** pads the values to the power of two with the last value, so that the count of distinct queries is logarithmic . */
+    Padded,
+
+    /** splits the values into chunks which ored, under the chunk size . */
+    Chunked;
+
+    /** the system property to specify the default strategy, e.g. -Djp.furplag.sandbox.domino.misc.vars.Where.strategy=Padded . */
+    public static final String strategyProperty = Where.class.getName() + ".strategy";
+
+    /** the system property to specify the maximum count of values in one "in", e.g. -Djp.furplag.sandbox.domino.misc.vars.Where.chunkSize=500 . */
+    public static final String chunkSizeProperty = Where.class.getName() + ".chunkSize";
+
+    /**
+     * returns the default strategy, specified by the system property {@link #strategyProperty} ( default: {@link #Exact} ) .
+     *
+     * @return the default strategy
+     */
+    public static Strategy defaultStrategy() {
+      return Stream.of(values()).filter((t) -> t.name().equalsIgnoreCase(System.getProperty(strategyProperty))).findFirst().orElse(Exact);
+    }
+
+    /**
+     * returns the maximum count of values in one "in", specified by the system property {@link #chunkSizeProperty} ( default: 1000 ) .
+     *
+     * @return the maximum count of values in one "in"
+     */
+    public static int chunkSize() {
+      return Math.max(1, Integer.getInteger(chunkSizeProperty, 1000));
+    }
+  }
+
   static final class AnyOf<T> extends Origin<T> {
 
-    private AnyOf(Var.AnyOf<T> var, Operator operator) {
+    /** the way to render the values . */
+    @Getter
+    private final Strategy strategy;
+
+    /** the maximum count of values in one "in" . */
+    private final int chunkSize;
+
+    private AnyOf(Var.AnyOf<T> var, Operator operator, Strategy strategy) {
       super(var, operator);
       if (!List.of(Operator.Includes, Operator.Excludes).contains(operator)) {
         throw new IllegalArgumentException(String.format("the operator \"%s\" could not use \"in\" .", operator.name()));
       }
+      this.strategy = Objects.requireNonNullElseGet(strategy, Strategy::defaultStrategy);
+      chunkSize = Strategy.chunkSize();
+    }
+
+    /**
+     * returns the values which split into chunks .
+     *
+     * @return the values which split into chunks
+     */
+    private List<List<T>> chunks() {
+      final List<T> values = padded(getVar().getValues(), arity());
+      if (Strategy.Exact.equals(strategy) || values.size() <= chunkSize) {
+        return Collections.singletonList(values);
+      }
+      final List<List<T>> chunks = new ArrayList<>();
+      for (int i = 0; i < values.size(); i += chunkSize) {
+        chunks.add(values.subList(i, Math.min(i + chunkSize, values.size())));
+      }
+
+      return chunks;
+    }
+
+    /**
+     * returns a view of the values which padded with the last value .
+     *
+     * @param values the values
+     * @param size the size to pad
+     * @return a view of the values, or the values itself if no need to pad
+     */
+    private static <T> List<T> padded(final List<T> values, final int size) {
+      return values.isEmpty() || values.size() >= size ? values : new AbstractList<>() {
+
+        @Override
+        public T get(int index) {
+          Objects.checkIndex(index, size);
+
+          return values.get(Math.min(index, values.size() - 1));
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+
+    @Override
+    public List<?> getShape() {
+      return List.of(getClass(), getVar().getColumnName(), getOperator(), arity(), strategy, Strategy.Exact.equals(strategy) ? 0 : chunkSize);
     }
 
     @Override
@@ -98,9 +201,35 @@ public interface Where<T> extends Comparable<Where<?>> {
       return (Var.AnyOf<T>) super.getVar();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return the count of values, or the power of two which padded to if {@link Strategy#Padded}
+     */
+    @Override
+    public int arity() {
+      final int size = getVar().getValues().size();
+
+      return Strategy.Padded.equals(strategy) && size > 1 ? Integer.highestOneBit(size - 1) << 1 : size;
+    }
+
     @Override
-    public SelectBuilder sql(SelectBuilder selectBuilder) {
-      return selectBuilder.sql(String.join(" ", getOperator().isNegate() ? " not" : "", getVar().getColumnName(), getOperator().getOperator(), "(")).params(getVar().getValueType(), getVar().getValues()).sql(")");
+    public Template template() {
+      final int chunks = (arity() + chunkSize - 1) / chunkSize;
+      if (Strategy.Exact.equals(strategy) || chunks < 2) {
+        return Template.builder().sql(String.join(" ", getOperator().isNegate() ? " not" : "", getVar().getColumnName(), getOperator().getOperator(), "(")).params(getVar().getValueType()).sql(")").build();
+      }
+      final Template.Builder template = Template.builder().sql(getOperator().isNegate() ? " not (" : " (");
+      for (int i = 0; i < chunks; i++) {
+        template.sql(String.join(" ", i > 0 ? " or " + getVar().getColumnName() : getVar().getColumnName(), getOperator().getOperator(), "(")).params(getVar().getValueType()).sql(")");
+      }
+
+      return template.sql(")").build();
+    }
+
+    @Override
+    public List<?> values() {
+      return chunks();
     }
   }
 
@@ -137,13 +266,27 @@ public interface Where<T> extends Comparable<Where<?>> {
       return String.join("", prefix, Objects.toString(getVar().getValue(), ""), suffix);
     }
 
+    /**
+     * tests if this condition falls back to equality .
+     *
+     * @return true if this condition falls back to equality
+     */
+    private boolean isEquality() {
+      return Stream.of(Operator.Equal, Operator.NotEqual).anyMatch(getOperator()::equals);
+    }
+
     @Override
-    public SelectBuilder sql(SelectBuilder selectBuilder) {
-      if (Stream.of(Operator.Equal, Operator.NotEqual).anyMatch(getOperator()::equals)) {
-        return super.sql(selectBuilder);
+    public Template template() {
+      if (isEquality()) {
+        return super.template();
       }
 
-      return selectBuilder.sql(String.join(" ", getOperator().isNegate() ? " not" : "", getVar().getColumnName(), getOperator().getOperator(), " ")).param(String.class, getValue()).sql(" ");
+      return Template.builder().sql(String.join(" ", getOperator().isNegate() ? " not" : "", getVar().getColumnName(), getOperator().getOperator(), " ")).param(String.class).sql(" ").build();
+    }
+
+    @Override
+    public List<?> values() {
+      return isEquality() ? super.values() : Collections.singletonList(getValue());
     }
   }
 
@@ -161,15 +304,30 @@ public interface Where<T> extends Comparable<Where<?>> {
       return (Var.Range<T>) super.getVar();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return the count of bounds, or negative if only the upper bound specified
+     */
+    @Override
+    public int arity() {
+      return Objects.nonNull(getVar().getMin()) ? (int) getVar().getValueCount() : -1;
+    }
+
     @Override
-    public SelectBuilder sql(SelectBuilder selectBuilder) {
-      selectBuilder.sql(String.join(" ", getVar().getValueCount() > 1 ? " (" : " ", getVar().getColumnName(), (Objects.nonNull(getVar().getMin()) ? getOperator() : (Operator.LessThanEqual.equals(getOperator()) ? Operator.GreaterThanEqual : Operator.GreaterThan)).getOperator()))
-        .param(getVar().getValueType(), Objects.requireNonNullElse(getVar().getMin(), getVar().getMax()));
+    public Template template() {
+      final Template.Builder template = Template.builder().sql(String.join(" ", getVar().getValueCount() > 1 ? " (" : " ", getVar().getColumnName(), (Objects.nonNull(getVar().getMin()) ? getOperator() : (Operator.LessThanEqual.equals(getOperator()) ? Operator.GreaterThanEqual : Operator.GreaterThan)).getOperator()))
+        .param(getVar().getValueType());
       if (getVar().getValueCount() > 1) {
-        selectBuilder.sql(String.join(" ", "and", getVar().getColumnName(), (Operator.LessThanEqual.equals(getOperator()) ? Operator.GreaterThanEqual : Operator.GreaterThan).getOperator())).param(getVar().getValueType(), getVar().getMax()).sql(") ");
+        template.sql(String.join(" ", "and", getVar().getColumnName(), (Operator.LessThanEqual.equals(getOperator()) ? Operator.GreaterThanEqual : Operator.GreaterThan).getOperator())).param(getVar().getValueType()).sql(") ");
       }
 
-      return selectBuilder;
+      return template.build();
+    }
+
+    @Override
+    public List<?> values() {
+      return getVar().getValueCount() > 1 ? Arrays.asList(getVar().getMin(), getVar().getMax()) : Collections.singletonList(Objects.requireNonNullElse(getVar().getMin(), getVar().getMax()));
     }
   }
 
@@ -178,7 +336,20 @@ public interface Where<T> extends Comparable<Where<?>> {
   }
 
   static <T> Where<T> of(final Var<T> var, final @NonNull Operator operator) {
-    return operator.isSearcher() ? new Word<>(var, operator) : var instanceof Var.AnyOf ? new AnyOf<>((Var.AnyOf<T>) var, operator) : new Where.Origin<>(var, operator) {};
+    return of(var, operator, null);
+  }
+
+  /**
+   * returns a condition .
+   *
+   * @param <T> the type of value
+   * @param var {@link Var}
+   * @param operator {@link Operator}
+   * @param strategy the way to render the values of "in", or null to use {@link Strategy#defaultStrategy()}
+   * @return {@link Where}
+   */
+  static <T> Where<T> of(final Var<T> var, final @NonNull Operator operator, final Strategy strategy) {
+    return operator.isSearcher() ? new Word<>(var, operator) : var instanceof Var.AnyOf ? new AnyOf<>((Var.AnyOf<T>) var, operator, strategy) : new Where.Origin<>(var, operator) {};
   }
 
   /**
@@ -195,10 +366,52 @@ public interface Where<T> extends Comparable<Where<?>> {
    */
   Var<T> getVar();
 
+  /**
+   * returns the count of values which this condition binds, a part of {@link #getShape() shape} .
+   *
+   * @return the count of values which this condition binds
+   */
+  default int arity() {
+    return getOperator().isNullFinder() ? 0 : 1;
+  }
+
+  /**
+   * returns the shape of this condition, which identifies {@link #template()} regardless of the values .
+   *
+   * @return the shape of this condition
+   */
+  default List<?> getShape() {
+    return List.of(getClass(), getVar().getColumnName(), getOperator(), arity());
+  }
+
+  /**
+   * renders this condition to {@link SelectBuilder} .
+   *
+   * @param selectBuilder {@link SelectBuilder}
+   * @return selectBuilder ( query structured )
+   */
   default SelectBuilder sql(SelectBuilder selectBuilder) {
-    selectBuilder.sql(String.join(" ", getOperator().isNegate() ? " not" : "", getVar().getColumnName(), getOperator().getOperator(), getOperator().isNullFinder() ? "NULL" : ""));
+    return template().bind(selectBuilder, values());
+  }
+
+  /**
+   * returns the fragment of SQL query which has placeholders of {@link #values()} .
+   *
+   * @return {@link Template}
+   */
+  default Template template() {
+    final Template.Builder template = Template.builder().sql(String.join(" ", getOperator().isNegate() ? " not" : "", getVar().getColumnName(), getOperator().getOperator(), getOperator().isNullFinder() ? "NULL" : ""));
+
+    return (getOperator().isNullFinder() ? template : template.param(getVar().getValueType())).build();
+  }
 
-    return getOperator().isNullFinder() ? selectBuilder : selectBuilder.param(getVar().getValueType(), getVar().getValue());
+  /**
+   * returns the values which binds to {@link #template()} .
+   *
+   * @return the values which binds to {@link #template()}
+   */
+  default List<?> values() {
+    return getOperator().isNullFinder() ? List.of() : Collections.singletonList(getVar().getValue());
   }
 
   /** {@inheritDoc} */
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc;
+
+import org.seasar.doma.Entity;
+import org.seasar.doma.Id;
+import org.seasar.doma.Table;
+import org.seasar.doma.jdbc.entity.NamingType;
+import jp.furplag.sandbox.domino.misc.cache.Cached;
+import jp.furplag.sandbox.domino.misc.origin.RowOrigin;
+
+@Cached(maximumSize = 2, expireAfterSeconds = 60)
+@Entity(naming = NamingType.SNAKE_LOWER_CASE)
+@Table(name = "test_entity")
+public class CachedEntity implements RowOrigin {
+
+  @Id
+  public long id;
+
+  public String name;
+
+  public int grade;
+
+  public CachedEntity() {}
+
+  public CachedEntity(long id, String name, int grade) {
+    this.id = id;
+    this.name = name;
+    this.grade = grade;
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.seasar.doma.Entity;
+import org.seasar.doma.Id;
+import org.seasar.doma.Table;
+import org.seasar.doma.Transient;
+import org.seasar.doma.jdbc.entity.NamingType;
+import jp.furplag.sandbox.domino.misc.origin.Conditionally;
+import jp.furplag.sandbox.domino.misc.origin.Sequentially;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+import lombok.Getter;
+
+@Entity(naming = NamingType.SNAKE_LOWER_CASE)
+@Table(name = "test_entity")
+public class TestEntity implements Conditionally {
+
+  @Transient
+  @Getter
+  Map<String, Where<?>> wheres = new ConcurrentHashMap<>();
+
+  @Transient
+  @Getter
+  Queue<Sequentially.OrderBy> order = new ConcurrentLinkedQueue<>();
+
+  @Id
+  public long id;
+
+  public String name;
+
+  public int grade;
+
+  public TestEntity() {}
+
+  public TestEntity(long id, String name, int grade) {
+    this.id = id;
+    this.name = name;
+    this.grade = grade;
+  }
+
+  /**
+   * recreates the table which has rows [1, rows], must be called in transaction .
+   *
+   * @param rows the count of rows
+   */
+  public static void prepare(final int rows) {
+    try (Statement statement = TestConfig.singleton().getDataSource().getConnection().createStatement()) {
+      statement.execute("drop table if exists test_entity");
+      statement.execute("create table test_entity (id bigint primary key, name varchar(32), grade int)");
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+    try (PreparedStatement statement = TestConfig.singleton().getDataSource().getConnection().prepareStatement("insert into test_entity (id, name, grade) values (?, ?, ?)")) {
+      for (int i = 1; i <= rows; i++) {
+        statement.setLong(1, i);
+        statement.setString(2, "name" + i);
+        statement.setInt(3, i % 3);
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
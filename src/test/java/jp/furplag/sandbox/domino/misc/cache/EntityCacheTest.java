@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.CachedEntity;
+import jp.furplag.sandbox.domino.misc.TestConfig;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.origin.Bulk;
+
+class EntityCacheTest {
+
+  public static final TestConfig config = TestConfig.singleton();
+
+  private static void rename(final long id, final String name) {
+    try (Statement statement = config.getDataSource().getConnection().createStatement()) {
+      statement.execute(String.format("update test_entity set name = '%s' where id = %d", name, id));
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Test
+  void test() {
+    EntityCache.shared().invalidateAll(CachedEntity.class);
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(3);
+      assertEquals("name1", new CachedEntity().<CachedEntity>findById(SelectBuilder.newInstance(config), 1L).map((t) -> t.name).orElse(null));
+      rename(1, "renamed");
+      // @formatter:off
+      assertAll(
+          () -> assertEquals("name1", new CachedEntity().<CachedEntity>findById(SelectBuilder.newInstance(config), 1).map((t) -> t.name).orElse(null))
+        , () -> assertEquals("renamed", new TestEntity().<TestEntity>findById(SelectBuilder.newInstance(config), 1L).map((t) -> t.name).orElse(null))
+        , () -> assertFalse(new CachedEntity().findById(SelectBuilder.newInstance(config), 4L).isPresent())
+        , () -> assertEquals(1, EntityCache.shared().size(CachedEntity.class))
+        , () -> assertEquals(0, EntityCache.shared().size(TestEntity.class))
+        , () -> assertThrows(IllegalArgumentException.class, () -> new CachedEntity().findById(SelectBuilder.newInstance(config), 1L, 2L))
+      );
+      // @formatter:on
+      Bulk.update(config, List.of(new CachedEntity(1, "updated", 1)));
+      assertEquals("updated", new CachedEntity().<CachedEntity>findById(SelectBuilder.newInstance(config), 1L).map((t) -> t.name).orElse(null));
+      rename(2, "renamed");
+      EntityCache.shared().invalidate(new CachedEntity(2, null, 0));
+      assertEquals("renamed", new CachedEntity().<CachedEntity>findById(SelectBuilder.newInstance(config), 2L).map((t) -> t.name).orElse(null));
+    });
+  }
+
+  @Test
+  void testEviction() {
+    final AtomicLong now = new AtomicLong();
+    final EntityCache cache = new EntityCache(now::get);
+    cache.get(CachedEntity.class, List.of(1L), (ids) -> new CachedEntity(1, "a", 0));
+    cache.get(CachedEntity.class, List.of(2L), (ids) -> new CachedEntity(2, "b", 0));
+    cache.get(CachedEntity.class, List.of(1L), (ids) -> null);
+    cache.get(CachedEntity.class, List.of(3L), (ids) -> new CachedEntity(3, "c", 0));
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(2, cache.size(CachedEntity.class))
+      , () -> assertEquals(1L, cache.evictions())
+      , () -> assertEquals(1L, cache.hits())
+      , () -> assertEquals("a", cache.get(CachedEntity.class, List.of(1L), (ids) -> null).map((t) -> t.name).orElse(null))
+      , () -> assertFalse(cache.get(CachedEntity.class, List.of(2L), (ids) -> null).isPresent())
+    );
+    // @formatter:on
+    now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+    assertFalse(cache.get(CachedEntity.class, List.of(1L), (ids) -> null).isPresent());
+    assertEquals(1, cache.size(CachedEntity.class));
+  }
+
+  @Test
+  void testCopy() {
+    final EntityCache cache = new EntityCache(System::nanoTime);
+    final CachedEntity loaded = new CachedEntity(1, "a", 0);
+    assertSame(loaded, cache.get(CachedEntity.class, List.of(1L), (ids) -> loaded).orElse(null));
+    loaded.name = "changed by the loader";
+    final CachedEntity hit = cache.get(CachedEntity.class, List.of(1L), (ids) -> null).orElse(null);
+    hit.name = "changed by a caller";
+    final byte[] bytes = { 1, 2 };
+    // @formatter:off
+    assertAll(
+        () -> assertEquals("a", cache.get(CachedEntity.class, List.of(1L), (ids) -> null).map((t) -> t.name).orElse(null))
+      , () -> assertNotSame(hit, cache.get(CachedEntity.class, List.of(1L), (ids) -> null).orElse(null))
+      , () -> assertEquals(1L, cache.get(CachedEntity.class, List.of(1L), (ids) -> null).map((t) -> t.id).orElse(null))
+      , () -> assertNull(Copier.copyOf(null))
+      , () -> assertSame("a", Copier.copyOf("a"))
+      , () -> assertNotSame(bytes, Copier.copyOf(bytes))
+      , () -> assertArrayEquals(bytes, Copier.copyOf(bytes))
+    );
+    // @formatter:on
+  }
+}
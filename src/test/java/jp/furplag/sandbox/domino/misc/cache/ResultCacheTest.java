@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import javax.sql.DataSource;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import jp.furplag.sandbox.domino.misc.CachedEntity;
+import jp.furplag.sandbox.domino.misc.TestConfig;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.origin.Bulk;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+class ResultCacheTest {
+
+  public static final TestConfig config = TestConfig.singleton();
+
+  private static List<String> names() {
+    return new TestEntity().where("grade", Where.Operator.Equal, 1).orderBy("id").<TestEntity>selectCached(config).stream().map((t) -> t.name).collect(Collectors.toList());
+  }
+
+  @Test
+  void test() {
+    ResultCache.shared().clear();
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(5);
+      final long misses = ResultCache.shared().misses();
+      assertEquals(List.of("name1", "name4"), names());
+      try (Statement statement = config.getDataSource().getConnection().createStatement()) {
+        statement.execute("update test_entity set name = 'renamed' where id = 1");
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(List.of("name1", "name4"), names())
+        , () -> assertEquals(misses + 1, ResultCache.shared().misses())
+        , () -> assertEquals(1, ResultCache.shared().size())
+        , () -> assertTrue(ResultCache.shared().weight() > 0)
+        , () -> assertThrows(UnsupportedOperationException.class, () -> new TestEntity().<TestEntity>selectCached(config).clear())
+      );
+      // @formatter:on
+      Bulk.update(config, List.of(new TestEntity(4, "updated", 1)));
+      assertEquals(List.of("renamed", "updated"), names());
+    });
+  }
+
+  @Test
+  void testEviction() {
+    final AtomicLong now = new AtomicLong();
+    final ResultCache cache = new ResultCache(ResultCache.weightOf(List.of(new TestEntity(1, "name1", 1))) * 2, 10, now::get);
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(3);
+      for (long id = 1; id <= 3; id++) {
+        cache.get(config, new TestEntity().where("id", Where.Operator.Equal, id).select(SelectBuilder.newInstance(config)), TestEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(TestEntity.class));
+      }
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(2, cache.size())
+        , () -> assertEquals(1L, cache.evictions())
+        , () -> assertEquals(0L, cache.hits())
+        , () -> assertTrue(cache.weight() <= cache.getMaximumWeight())
+      );
+      // @formatter:on
+      cache.get(config, new TestEntity().where("id", Where.Operator.Equal, 3L).select(SelectBuilder.newInstance(config)), TestEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(TestEntity.class));
+      assertEquals(1L, cache.hits());
+      now.addAndGet(10);
+      cache.get(config, new TestEntity().where("id", Where.Operator.Equal, 3L).select(SelectBuilder.newInstance(config)), TestEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(TestEntity.class));
+      assertAll(() -> assertEquals(1L, cache.hits()), () -> assertEquals(1, cache.size()));
+      cache.invalidate("TEST_ENTITY");
+      assertAll(() -> assertEquals(0, cache.size()), () -> assertEquals(0L, cache.weight()));
+    });
+  }
+
+  @Test
+  void testKey() {
+    final Config another = new Config() {
+
+      @Override
+      public DataSource getDataSource() {
+        return config.getDataSource();
+      }
+
+      @Override
+      public Dialect getDialect() {
+        return config.getDialect();
+      }
+    };
+    final ResultCache cache = new ResultCache(1L << 20, 10);
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(3);
+      cache.get(config, new TestEntity().where("id", Where.Operator.Equal, 1L).select(SelectBuilder.newInstance(config)), TestEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(TestEntity.class));
+      cache.get(another, new TestEntity().where("id", Where.Operator.Equal, 1L).select(SelectBuilder.newInstance(another)), TestEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(TestEntity.class));
+      cache.get(config, new TestEntity().where("id", Where.Operator.Equal, 1L).select(SelectBuilder.newInstance(config)), CachedEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(CachedEntity.class));
+      cache.get(config, new TestEntity().where("id", Where.Operator.Equal, 1L).select(SelectBuilder.newInstance(config)), TestEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(TestEntity.class));
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(3, cache.size())
+        , () -> assertEquals(3L, cache.misses())
+        , () -> assertEquals(1L, cache.hits())
+        , () -> assertNotEquals(ResultCache.keyOf(config, TestEntity.class, SelectBuilder.newInstance(config).sql("select 1").getSql()), ResultCache.keyOf(another, TestEntity.class, SelectBuilder.newInstance(config).sql("select 1").getSql()))
+        , () -> assertEquals(ResultCache.keyOf(config, TestEntity.class, SelectBuilder.newInstance(config).sql("select 1").getSql()), ResultCache.keyOf(config, TestEntity.class, SelectBuilder.newInstance(config).sql("select 1").getSql()))
+      );
+      // @formatter:on
+    });
+  }
+
+  @Test
+  void testCopy() {
+    final ResultCache cache = new ResultCache(1L << 20, 10);
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(3);
+      final List<TestEntity> first = cache.get(config, new TestEntity().where("id", Where.Operator.Equal, 1L).select(SelectBuilder.newInstance(config)), TestEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(TestEntity.class));
+      first.get(0).name = "changed";
+      final List<TestEntity> second = cache.get(config, new TestEntity().where("id", Where.Operator.Equal, 1L).select(SelectBuilder.newInstance(config)), TestEntity.class, List.of("test_entity"), (query) -> query.getEntityResultList(TestEntity.class));
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(1L, cache.hits())
+        , () -> assertEquals("name1", second.get(0).name)
+        , () -> assertNotSame(first.get(0), second.get(0))
+        , () -> assertThrows(UnsupportedOperationException.class, () -> second.add(new TestEntity()))
+      );
+      // @formatter:on
+    });
+  }
+}
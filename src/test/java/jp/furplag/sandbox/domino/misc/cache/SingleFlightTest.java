@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.TestConfig;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+class SingleFlightTest {
+
+  public static final TestConfig config = TestConfig.singleton();
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * waits until the followers start waiting .
+   *
+   * @param singleFlight {@link SingleFlight}
+   * @param joins the count of followers
+   */
+  private static void awaitJoins(final SingleFlight singleFlight, final long joins) {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (singleFlight.joins() < joins && System.nanoTime() < deadline) {
+      Thread.onSpinWait();
+    }
+  }
+
+  @Test
+  void test() throws Exception {
+    final SingleFlight singleFlight = new SingleFlight();
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final Future<String> leader = executor.submit(() -> singleFlight.execute("key", Duration.ofSeconds(10), () -> {
+        loads.incrementAndGet();
+        await(release);
+
+        return "result";
+      }));
+      while (singleFlight.inflight() < 1) {
+        Thread.onSpinWait();
+      }
+      final List<Future<String>> followers = IntStream.range(0, 7).mapToObj((i) -> executor.submit(() -> singleFlight.<String>execute("key", Duration.ofSeconds(10), () -> {
+        loads.incrementAndGet();
+
+        return "another";
+      }))).collect(Collectors.toList());
+      awaitJoins(singleFlight, 7);
+      release.countDown();
+      assertEquals("result", leader.get());
+      for (Future<String> follower : followers) {
+        assertEquals("result", follower.get());
+      }
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(1, loads.get())
+        , () -> assertEquals(1L, singleFlight.executions())
+        , () -> assertEquals(7L, singleFlight.joins())
+        , () -> assertEquals(0, singleFlight.inflight())
+        , () -> assertEquals("again", singleFlight.execute("key", Duration.ofSeconds(1), () -> "again"))
+      );
+      // @formatter:on
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testFailure() throws Exception {
+    final SingleFlight singleFlight = new SingleFlight();
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Object> leader = executor.submit(() -> singleFlight.execute("failure", Duration.ofSeconds(10), () -> {
+        await(release);
+        throw new UnsupportedOperationException("failed");
+      }));
+      while (singleFlight.inflight() < 1) {
+        Thread.onSpinWait();
+      }
+      final CompletableFuture<Object> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("failure", Duration.ofSeconds(10), () -> "never"), executor);
+      final CompletableFuture<Object> timedOut = CompletableFuture.supplyAsync(() -> singleFlight.execute("failure", Duration.ofMillis(1), () -> "never"));
+      assertTrue(assertThrows(Exception.class, timedOut::join).getCause() instanceof IllegalStateException);
+      awaitJoins(singleFlight, 2);
+      release.countDown();
+      assertTrue(assertThrows(Exception.class, leader::get).getCause() instanceof UnsupportedOperationException);
+      assertTrue(assertThrows(Exception.class, follower::join).getCause() instanceof UnsupportedOperationException);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testCancel() throws Exception {
+    final SingleFlight singleFlight = new SingleFlight();
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<String> leader = executor.submit(() -> singleFlight.execute("cancel", Duration.ofSeconds(10), () -> {
+        await(release);
+
+        return "result";
+      }));
+      while (singleFlight.inflight() < 1) {
+        Thread.onSpinWait();
+      }
+      final Future<String> follower = executor.submit(() -> singleFlight.execute("cancel", Duration.ofSeconds(10), () -> "never"));
+      awaitJoins(singleFlight, 1);
+      assertTrue(singleFlight.cancel("cancel"));
+      // @formatter:off
+      assertAll(
+          () -> assertTrue(assertThrows(Exception.class, follower::get).getCause() instanceof CancellationException)
+        , () -> assertTrue(assertThrows(Exception.class, leader::get).getCause() instanceof CancellationException)
+        , () -> assertEquals(1L, release.getCount())
+        , () -> assertFalse(singleFlight.cancel("cancel"))
+        , () -> assertEquals(0, singleFlight.inflight())
+      );
+      // @formatter:on
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testCancelQuery() throws Exception {
+    final SingleFlight singleFlight = new SingleFlight();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    final Statement statement = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { Statement.class }, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "hashCode": return System.identityHashCode(proxy);
+        case "equals": return proxy == args[0];
+        case "cancel": cancelled.countDown(); return null;
+        case "execute": started.countDown(); await(cancelled); throw new SQLException("cancelled .");
+        default: return null;
+      }
+    });
+    final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> "createStatement".equals(method.getName()) ? statement : null);
+    final DataSource dataSource = new CancellableDataSource((DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[] { DataSource.class }, (proxy, method, args) -> connection));
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Boolean> leader = executor.submit(() -> singleFlight.execute("query", Duration.ofSeconds(10), () -> {
+        try (Connection _connection = dataSource.getConnection(); Statement _statement = _connection.createStatement()) {
+          return _statement.execute("select 1");
+        } catch (SQLException e) {
+          throw new IllegalStateException(e);
+        }
+      }, false));
+      await(started);
+      assertTrue(singleFlight.cancel("query"));
+      final Future<String> succeeded = executor.submit(() -> singleFlight.execute("succeeded", Duration.ofSeconds(10), () -> {
+        await(release);
+
+        return "result";
+      }, false));
+      while (singleFlight.inflight() < 1) {
+        Thread.onSpinWait();
+      }
+      assertTrue(singleFlight.cancel("succeeded"));
+      release.countDown();
+      // @formatter:off
+      assertAll(
+          () -> assertTrue(assertThrows(Exception.class, leader::get).getCause() instanceof CancellationException)
+        , () -> assertEquals(0L, cancelled.getCount())
+        , () -> assertEquals("result", succeeded.get())
+        , () -> assertEquals(0, singleFlight.inflight())
+      );
+      // @formatter:on
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testTimeout() {
+    final SingleFlight singleFlight = new SingleFlight();
+    final CountDownLatch release = new CountDownLatch(1);
+    final long started = System.nanoTime();
+    // @formatter:off
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> singleFlight.execute("timeout", Duration.ofMillis(50), () -> {
+          await(release);
+
+          return "never";
+        }))
+      , () -> assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5))
+      , () -> assertFalse(Thread.currentThread().isInterrupted())
+      , () -> assertEquals(0, singleFlight.inflight())
+      , () -> assertEquals("again", singleFlight.execute("timeout", Duration.ofSeconds(1), () -> "again"))
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void testSelect() {
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(3);
+      assertEquals(1, new SingleFlight().select(config, new TestEntity().where("id", Where.Operator.Equal, 2L).select(SelectBuilder.newInstance(config)), TestEntity.class, Duration.ofSeconds(1), (query) -> query.getEntityResultList(TestEntity.class)).size());
+    });
+  }
+}
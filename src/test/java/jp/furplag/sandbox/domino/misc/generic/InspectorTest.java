@@ -31,6 +31,7 @@ import org.seasar.doma.jdbc.entity.NamingType;
 import jp.furplag.sandbox.domino.misc.TestConfig;
 import jp.furplag.sandbox.domino.misc.origin.Origin;
 import jp.furplag.sandbox.domino.misc.origin.RowOrigin;
+import jp.furplag.sandbox.reflect.Reflections;
 import jp.furplag.sandbox.stream.Streamr;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -139,6 +140,30 @@ class InspectorTest {
     // @formatter:on
   }
 
+  @Test
+  void testRegistry() {
+    Inspector.Registry.remove(Zero.One.Two.Three.Four.Five.class);
+    final long misses = Inspector.Registry.misses();
+    final Inspector<Zero.One.Two.Three.Four.Five> inspector = Inspector.of(Zero.One.Two.Three.Four.Five.class);
+    final long hits = Inspector.Registry.hits();
+    // @formatter:off
+    assertAll(
+        () -> assertSame(inspector, Inspector.of(Zero.One.Two.Three.Four.Five.class))
+      , () -> assertSame(inspector, new Zero.One.Two.Three.Four.Five().inspector())
+      , () -> assertEquals(misses + 1, Inspector.Registry.misses())
+      , () -> assertTrue(hits + 2 <= Inspector.Registry.hits())
+    );
+    // @formatter:on
+
+    Inspector.Registry.remove(Zero.One.Two.Three.Four.Five.class);
+    // @formatter:off
+    assertAll(
+        () -> assertNotSame(inspector, Inspector.of(Zero.One.Two.Three.Four.Five.class))
+      , () -> assertEquals(inspector, Inspector.of(Zero.One.Two.Three.Four.Five.class))
+    );
+    // @formatter:on
+  }
+
   @Test
   void testNamingType() {
     // @formatter:off
@@ -162,6 +187,27 @@ class InspectorTest {
     // @formatter:on
   }
 
+  @Test
+  void testLookup() {
+    final Inspector<Zero.One> inspector = Inspector.of(Zero.One.class);
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(Reflections.getField(Zero.One.class, "three"), inspector.getField("three"))
+      , () -> assertEquals(Reflections.getField(Zero.One.class, "three"), inspector.getField("THREE"))
+      , () -> assertEquals(Reflections.getField(Five.class, "seven"), inspector.getField("Seven"))
+      , () -> assertNull(inspector.getField("zero"))
+      , () -> assertNull(inspector.getField(null))
+      , () -> assertEquals(Reflections.getField(Zero.One.class, "three"), inspector.getFieldByColumnName("thr33"))
+      , () -> assertEquals(Reflections.getField(Zero.One.class, "three"), inspector.getFieldByColumnName("THR33"))
+      , () -> assertEquals(Reflections.getField(Five.class, "seven"), inspector.getFieldByColumnName("se7en"))
+      , () -> assertNull(inspector.getFieldByColumnName("three"))
+      , () -> assertNull(inspector.getFieldByColumnName(null))
+      , () -> assertEquals("thr33", inspector.getName(inspector.getField("three")))
+      , () -> assertEquals(inspector.getFields(), inspector.getFields().stream().map(inspector::getName).map(inspector::getFieldByColumnName).collect(Collectors.toList()))
+    );
+    // @formatter:on
+  }
+
   @Test
   void paintItGreen() {
     // @formatter:off
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.generic;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.jdbc.entity.NamingType;
+import jp.furplag.sandbox.domino.misc.origin.Origin;
+
+class MetamodelProcessorTest {
+
+  // @formatter:off
+  private static final String source = String.join("\n"
+    , "package metamodel.sample;"
+    , "import org.seasar.doma.*;"
+    , "import org.seasar.doma.jdbc.entity.NamingType;"
+    , "public class Sample {"
+    , "  @Entity(naming = NamingType.SNAKE_LOWER_CASE)"
+    , "  public static class Parent implements jp.furplag.sandbox.domino.misc.origin.RowOrigin {"
+    , "    static int nope;"
+    , "    @Id long primaryKey;"
+    , "    String name;"
+    , "    @Column(name = \"ALT\") String alternate;"
+    , "    @Transient int ignore;"
+    , "    Inner inner;"
+    , "  }"
+    , "  @Embeddable public static class Inner { int innerValue; }"
+    , "  @Entity @Table(name = \"kid\") public static class Child extends Parent { String extra; }"
+    , "  @Entity private static class Hidden implements jp.furplag.sandbox.domino.misc.origin.Origin { long id; }"
+    , "}");
+  // @formatter:on
+
+  @Test
+  void test() throws Exception {
+    final Path output = Files.createTempDirectory("metamodel");
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///metamodel/sample/Sample.java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+    final JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, List.of("-d", output.toString(), "-classpath", System.getProperty("java.class.path")), null, List.of(sourceFile));
+    task.setProcessors(List.of(new MetamodelProcessor()));
+    assertTrue(task.call());
+    assertTrue(Files.exists(output.resolve("metamodel/sample/_Sample__Child_Metamodel.class")));
+    assertFalse(Files.exists(output.resolve("metamodel/sample/_Sample__Hidden_Metamodel.class")));
+    assertEquals(List.of("metamodel.sample.Sample$Child", "metamodel.sample.Sample$Hidden", "metamodel.sample.Sample$Parent"), Files.readAllLines(output.resolve(Warmup.index)).stream().filter((t) -> !t.startsWith("#")).collect(Collectors.toList()));
+
+    try (URLClassLoader classLoader = new URLClassLoader(new java.net.URL[] { output.toUri().toURL() }, getClass().getClassLoader())) {
+      final Class<? extends Origin> childClass = classLoader.loadClass("metamodel.sample.Sample$Child").asSubclass(Origin.class);
+      final Metamodel metamodel = Metamodel.of(childClass).orElse(null);
+      assertNotNull(metamodel);
+      final Inspector<? extends Origin> inspector = Inspector.of(childClass);
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(childClass, metamodel.getEntityClass())
+        , () -> assertEquals(List.of(childClass, classLoader.loadClass("metamodel.sample.Sample$Parent")), metamodel.getClasses())
+        , () -> assertEquals(NamingType.SNAKE_LOWER_CASE, inspector.getNamingType())
+        , () -> assertEquals("kid", inspector.getName())
+        , () -> assertEquals("primary_key, extra, name, ALT, inner_value", metamodel.getColumns().stream().map(Metamodel.Column::getName).collect(Collectors.joining(", ")))
+        , () -> assertEquals("primaryKey, extra, name, alternate, innerValue", inspector.getFields().stream().map(Field::getName).collect(Collectors.joining(", ")))
+        , () -> assertEquals("primary_key, extra, name, ALT, inner_value", inspector.getFields().stream().map(inspector::getName).collect(Collectors.joining(", ")))
+        , () -> assertTrue(Warmup.fromIndex(classLoader).getEntities().containsAll(List.of(childClass, classLoader.loadClass("metamodel.sample.Sample$Hidden"))))
+        , () -> assertTrue(Warmup.fromIndex(classLoader).getFailures().isEmpty())
+      );
+      // @formatter:on
+    }
+  }
+
+  @Test
+  void paintItGreen() {
+    // @formatter:off
+    assertAll(
+        () -> assertEquals("_Metamodel_Metamodel", Metamodel.nameOf("", "Metamodel"))
+      , () -> assertEquals("a.b._C__D_Metamodel", Metamodel.nameOf("a.b", "a.b.C$D"))
+      , () -> assertEquals("jp.furplag.sandbox.domino.misc.generic._InspectorTest__Zero__One_Metamodel", Metamodel.nameOf(InspectorTest.Zero.One.class))
+      , () -> assertFalse(Metamodel.of(InspectorTest.Zero.One.class).isPresent())
+    );
+    // @formatter:on
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.generic;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class WarmupTest {
+
+  @Test
+  void test() {
+    final Warmup.Report report = Warmup.fromPackages(getClass().getClassLoader(), "jp.furplag.sandbox.domino.misc.generic");
+    // @formatter:off
+    assertAll(
+        () -> assertTrue(report.getEntities().contains(InspectorTest.Zero.One.class))
+      , () -> assertFalse(report.getEntities().contains(InspectorTest.class))
+      , () -> assertFalse(report.getElapsed().isNegative())
+      , () -> assertTrue(Warmup.scan(getClass().getClassLoader(), "jp.furplag.sandbox.domino.misc.generic").contains(WarmupTest.class.getName()))
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void paintItGreen() {
+    final Warmup.Report report = Warmup.warmup(List.of("not.exists.Nope", "java.lang.String"), getClass().getClassLoader(), ForkJoinPool.commonPool());
+    // @formatter:off
+    assertAll(
+        () -> assertTrue(report.getEntities().isEmpty())
+      , () -> assertTrue(report.getFailures().get("not.exists.Nope") instanceof ClassNotFoundException)
+      , () -> assertEquals(1, report.getFailures().size())
+      , () -> assertTrue(Warmup.scan(getClass().getClassLoader()).isEmpty())
+    );
+    // @formatter:on
+  }
+}
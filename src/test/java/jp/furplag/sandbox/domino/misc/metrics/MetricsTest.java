@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.TestConfig;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+class MetricsTest {
+
+  public static final TestConfig config = TestConfig.singleton();
+
+  @Test
+  void test() {
+    final InMemoryRegistry registry = new InMemoryRegistry();
+    final Metrics.Registry previous = Metrics.use(registry);
+    try {
+      config.getTransactionManager().required(() -> {
+        TestEntity.prepare(10);
+        new TestEntity().where("id", Where.Operator.Includes, 1L, 2L, 3L).<TestEntity, Long>stream(SelectBuilder.newInstance(config), (stream) -> stream.count());
+        new TestEntity().where("id", Where.Operator.Includes, 4L, 5L).<TestEntity, Long>stream(SelectBuilder.newInstance(config), (stream) -> stream.count());
+        new TestEntity().where("grade", Where.Operator.Equal, 1).execute(SelectBuilder.newInstance(config), (selectBuilder) -> selectBuilder.getEntityResultList(TestEntity.class));
+      });
+      final InMemoryRegistry.Statistics includes = registry.snapshot().entrySet().stream().filter((t) -> t.getKey().contains("in (?...)")).map((t) -> t.getValue()).findFirst().orElse(null);
+      final InMemoryRegistry.Statistics equal = registry.snapshot().entrySet().stream().filter((t) -> t.getKey().contains("grade = ?")).map((t) -> t.getValue()).findFirst().orElse(null);
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(2, registry.snapshot().size())
+        , () -> assertEquals(2L, includes.getCount())
+        , () -> assertEquals(5L, includes.getRows())
+        , () -> assertEquals(5L, includes.getBinds())
+        , () -> assertEquals(0L, includes.getFailures())
+        , () -> assertEquals(1L, equal.getCount())
+        , () -> assertEquals(4L, equal.getRows())
+        , () -> assertEquals(1L, equal.getBinds())
+        , () -> assertTrue(equal.getBuild().getMax() > 0)
+        , () -> assertTrue(equal.getExecute().getMax() > 0)
+      );
+      // @formatter:on
+    } finally {
+      Metrics.use(previous);
+    }
+  }
+
+  @Test
+  void testEvents() throws Exception {
+    final Path path = Files.createTempFile("domino", ".jfr");
+    try (Recording recording = new Recording()) {
+      List.of(Events.InspectorBuild.class, Events.WhereRender.class, Events.SelectRender.class, Events.QueryExecute.class).forEach((t) -> recording.enable(t).withThreshold(Duration.ZERO));
+      recording.start();
+      config.getTransactionManager().required(() -> {
+        TestEntity.prepare(3);
+        new TestEntity().where("grade", Where.Operator.Equal, 1).execute(SelectBuilder.newInstance(config), (selectBuilder) -> selectBuilder.getEntityResultList(TestEntity.class));
+        new TestEntity().where("grade", Where.Operator.Equal, 1).whereClause(SelectBuilder.newInstance(config).sql("select * from test_entity"));
+      });
+      recording.stop();
+      recording.dump(path);
+    }
+    final Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(path).stream().collect(Collectors.groupingBy((t) -> t.getEventType().getName()));
+    Files.deleteIfExists(path);
+    final int shapeHash = new TestEntity().where("grade", Where.Operator.Equal, 1).criteria().getShape().hashCode();
+    // @formatter:off
+    assertAll(
+        () -> assertTrue(events.containsKey("jp.furplag.sandbox.domino.SelectRender"))
+      , () -> assertTrue(events.containsKey("jp.furplag.sandbox.domino.WhereRender"))
+      , () -> assertEquals(1, events.get("jp.furplag.sandbox.domino.QueryExecute").size())
+      , () -> assertEquals(TestEntity.class.getName(), events.get("jp.furplag.sandbox.domino.QueryExecute").get(0).getClass("entityClass").getName())
+      , () -> assertEquals(1, events.get("jp.furplag.sandbox.domino.QueryExecute").get(0).getInt("parameterCount"))
+      , () -> assertEquals(1, events.get("jp.furplag.sandbox.domino.WhereRender").get(0).getInt("parameterCount"))
+      , () -> assertEquals(shapeHash, events.get("jp.furplag.sandbox.domino.QueryExecute").get(0).getInt("shapeHash"))
+      , () -> assertEquals(shapeHash, events.get("jp.furplag.sandbox.domino.SelectRender").get(0).getInt("shapeHash"))
+      , () -> assertEquals(shapeHash, events.get("jp.furplag.sandbox.domino.WhereRender").get(0).getInt("shapeHash"))
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void testHistogram() {
+    final Histogram histogram = new Histogram();
+    assertEquals(0L, histogram.getValueAtPercentile(99));
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(1000L, histogram.getCount())
+      , () -> assertEquals(1000L, histogram.getMin())
+      , () -> assertEquals(1000000L, histogram.getMax())
+      , () -> assertEquals(500500d, histogram.getMean())
+      , () -> assertEquals(500000d, histogram.getValueAtPercentile(50), 500000d / 64)
+      , () -> assertEquals(990000d, histogram.getValueAtPercentile(99), 990000d / 64)
+      , () -> assertEquals(1000000L, histogram.getValueAtPercentile(100))
+      , () -> assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101))
+    );
+    // @formatter:on
+    histogram.record(-1);
+    histogram.record(Long.MAX_VALUE);
+    assertAll(() -> assertEquals(0L, histogram.getMin()), () -> assertEquals(Histogram.highestTrackableValue, histogram.getMax()));
+    histogram.reset();
+    assertEquals(0L, histogram.getCount());
+  }
+
+  @Test
+  void paintItGreen() {
+    final InMemoryRegistry registry = new InMemoryRegistry(1);
+    registry.record(new Metrics.Sample("a", 1, 1, 1, 1, false));
+    registry.record(new Metrics.Sample("b", 1, 1, 1, 1, true));
+    registry.record(new Metrics.Sample("a", 1, 1, 1, 1, false));
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(List.of("(others)", "a"), List.copyOf(registry.snapshot().keySet()))
+      , () -> assertEquals(2L, registry.get("a").getCount())
+      , () -> assertEquals(1L, registry.get(InMemoryRegistry.overflow).getFailures())
+      , () -> assertEquals("select * from t where a = ? and b in (?...) and c in (?)", Metrics.shapeOf(" select * from t where a = ? and b in (?, ?,?) and c in (?) "))
+      , () -> assertFalse(Metrics.Registry.none().isEnabled())
+      , () -> assertThrows(IllegalArgumentException.class, () -> new InMemoryRegistry(0))
+      , () -> assertDoesNotThrow(() -> new Events.SelectRender().commit(Object.class, () -> { throw new AssertionError("never resolved unless recording ."); }, 0))
+      , () -> assertEquals(0, Events.hashOf(null))
+    );
+    // @formatter:on
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.dialect.H2Dialect;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+class AsyncTest {
+
+  private static final Dialect dialect = new H2Dialect();
+
+  private static Config config(final String url) {
+    final JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL(url);
+    dataSource.setUser("domaf");
+    dataSource.setPassword("domaf");
+
+    return new Config() {
+
+      @Override
+      public DataSource getDataSource() {
+        return dataSource;
+      }
+
+      @Override
+      public Dialect getDialect() {
+        return dialect;
+      }
+    };
+  }
+
+  private static final Config config = config("jdbc:h2:./.data/async;mode=PostgreSQL");
+
+  @BeforeAll
+  static void prepare() throws SQLException {
+    try (Connection connection = config.getDataSource().getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("drop table if exists test_entity");
+      statement.execute("create table test_entity (id bigint primary key, name varchar(32), grade int)");
+    }
+    Bulk.insert(config, LongStream.rangeClosed(1, 30).mapToObj((i) -> new TestEntity(i, "name" + i, (int) (i % 3))).collect(Collectors.toList()));
+  }
+
+  @Test
+  void test() {
+    final CompletableFuture<List<TestEntity>> grades = Async.select(config, new TestEntity().where("grade", Where.Operator.Equal, 1).orderBy("id"));
+    final CompletableFuture<List<TestEntity>> auto = Async.autoSelect(config, new TestEntity(5, "name5", 2), false);
+    final CompletableFuture<Long> count = Async.<TestEntity, Long>stream(config, new TestEntity(), 7, (stream) -> stream.count());
+    CompletableFuture.allOf(grades, auto, count).join();
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(LongStream.rangeClosed(1, 30).filter((i) -> i % 3 == 1).boxed().collect(Collectors.toList()), grades.join().stream().map((t) -> t.id).collect(Collectors.toList()))
+      , () -> assertEquals(List.of("name5"), auto.join().stream().map((t) -> t.name).collect(Collectors.toList()))
+      , () -> assertEquals(30L, count.join())
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void testExecutor() {
+    final AtomicInteger executions = new AtomicInteger();
+    final Executor executor = (runnable) -> {
+      executions.incrementAndGet();
+      ForkJoinPool.commonPool().execute(runnable);
+    };
+    final Executor defaultExecutor = Async.use(executor);
+    try {
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(executor, Async.executor())
+        , () -> assertEquals(1, Async.select(config, new TestEntity().where("id", Where.Operator.Equal, 1L)).join().size())
+        , () -> assertEquals(2, Async.select(config, new TestEntity().where("id", Where.Operator.LessThanEqual, 2L), executor).join().size())
+        , () -> assertEquals(2, executions.get())
+      );
+      // @formatter:on
+    } finally {
+      Async.use(null);
+    }
+    assertEquals(defaultExecutor, Async.executor());
+  }
+
+  @Test
+  void paintItGreen() {
+    final CompletableFuture<List<TestEntity>> broken = Async.select(config("jdbc:h2:./.data/async-nope;IFEXISTS=TRUE"), new TestEntity());
+    // @formatter:off
+    assertAll(
+        () -> assertThrows(CompletionException.class, broken::join)
+      , () -> assertThrows(IllegalArgumentException.class, () -> Async.stream(config, new TestEntity(), 0, (stream) -> stream.count()))
+      , () -> assertThrows(NullPointerException.class, () -> Async.select(config, new TestEntity(), null))
+      , () -> assertNotNull(Async.defaultExecutor())
+    );
+    // @formatter:on
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import jp.furplag.sandbox.domino.misc.TestConfig;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.metrics.Metrics;
+
+class BatchLoaderTest {
+
+  public static final TestConfig config = TestConfig.singleton();
+
+  @Test
+  void test() {
+    final LongAdder queries = new LongAdder();
+    final Metrics.Registry previous = Metrics.use((sample) -> queries.increment());
+    try {
+      config.getTransactionManager().required(() -> {
+        TestEntity.prepare(10);
+        final BatchLoader<TestEntity> loader = BatchLoader.of(config, TestEntity::new);
+        final CompletableFuture<Optional<TestEntity>> one = loader.load(1);
+        final CompletableFuture<Optional<TestEntity>> two = loader.load(2L);
+        final CompletableFuture<Optional<TestEntity>> nope = loader.load(99L);
+        // @formatter:off
+        assertAll(
+            () -> assertSame(one, loader.load(1L))
+          , () -> assertFalse(one.isDone())
+          , () -> assertEquals(3, loader.dispatch())
+          , () -> assertEquals(0, loader.dispatch())
+          , () -> assertEquals("name1", one.join().map((t) -> t.name).orElse(null))
+          , () -> assertEquals("name2", two.join().map((t) -> t.name).orElse(null))
+          , () -> assertFalse(nope.join().isPresent())
+          , () -> assertEquals(1L, queries.sum())
+        );
+        // @formatter:on
+        assertEquals("name3", loader.get(3).map((t) -> t.name).orElse(null));
+        assertEquals("name3", loader.get(3L).map((t) -> t.name).orElse(null));
+        assertEquals(2L, queries.sum());
+        assertEquals(List.of("name4", "name5", "name6"), loader.loadAll(List.of(4L, 5L, 6L, 100L)).values().stream().map((t) -> t.name).collect(Collectors.toList()));
+        assertEquals(3L, queries.sum());
+        loader.clear();
+        loader.get(1L);
+        assertEquals(4L, queries.sum());
+      });
+    } finally {
+      Metrics.use(previous);
+    }
+  }
+
+  @Test
+  void paintItGreen() {
+    // @formatter:off
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> BatchLoader.of(config, null))
+      , () -> assertThrows(NullPointerException.class, () -> BatchLoader.of(config, TestEntity::new).load(null))
+      , () -> assertEquals(TestEntity.class, BatchLoader.of(config, TestEntity::new).getEntityClass())
+    );
+    // @formatter:on
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.Column;
+import org.seasar.doma.Entity;
+import org.seasar.doma.GeneratedValue;
+import org.seasar.doma.GenerationType;
+import org.seasar.doma.Id;
+import org.seasar.doma.Table;
+import org.seasar.doma.Version;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.dialect.MysqlDialect;
+import org.seasar.doma.jdbc.entity.NamingType;
+import jp.furplag.sandbox.domino.misc.TestConfig;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.cache.ResultCache;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+class BulkTest {
+
+  public static final TestConfig config = TestConfig.singleton();
+
+  @Entity(naming = NamingType.SNAKE_LOWER_CASE)
+  @Table(name = "test_entity")
+  public static class Partial implements RowOrigin {
+
+    @Id
+    public long id;
+
+    @Column(insertable = false)
+    public String name;
+
+    @Column(updatable = false)
+    public int grade;
+
+    public Partial() {}
+
+    public Partial(long id, String name, int grade) {
+      this.id = id;
+      this.name = name;
+      this.grade = grade;
+    }
+  }
+
+  @Entity(naming = NamingType.SNAKE_LOWER_CASE)
+  @Table(name = "test_entity")
+  public static class Versioned implements RowOrigin {
+
+    @Id
+    public long id;
+
+    @Version
+    public long version;
+  }
+
+  @Entity(naming = NamingType.SNAKE_LOWER_CASE)
+  @Table(name = "test_entity")
+  public static class Generated implements RowOrigin {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public long id;
+  }
+
+  private static List<TestEntity> entities(long from, long to, String name) {
+    return LongStream.rangeClosed(from, to).mapToObj((id) -> new TestEntity(id, name + id, (int) id % 3)).collect(Collectors.toList());
+  }
+
+  private static List<String> names() {
+    return new TestEntity().orderBy("id").<TestEntity, List<String>>stream(SelectBuilder.newInstance(config), (stream) -> stream.map((t) -> t.name).collect(Collectors.toList()));
+  }
+
+  @Test
+  void test() {
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(0);
+      assertEquals(25, Bulk.insert(config, 10, entities(1, 25, "insert")));
+      assertEquals(entities(1, 25, "insert").stream().map((t) -> t.name).collect(Collectors.toList()), names());
+
+      final int[] updated = Bulk.update(config, 10, entities(1, 25, "update"));
+      assertEquals(25, updated.length);
+      assertEquals(25, IntStream.of(updated).sum());
+      assertEquals(entities(1, 25, "update").stream().map((t) -> t.name).collect(Collectors.toList()), names());
+
+      assertEquals(11, Bulk.upsert(config, 4, entities(20, 30, "upsert")));
+      final List<String> names = names();
+      assertEquals(30, names.size());
+      assertEquals("update19", names.get(18));
+      assertEquals("upsert20", names.get(19));
+      assertEquals("upsert30", names.get(29));
+      assertEquals(2L, new TestEntity().where("id", Where.Operator.Includes, 1L, 30L).<TestEntity, Long>stream(SelectBuilder.newInstance(config), (stream) -> stream.count()));
+
+      assertEquals(0, Bulk.insert(config, List.of()));
+    });
+  }
+
+  @Test
+  void testColumns() {
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(0);
+      assertEquals(1, Bulk.insert(config, List.of(new Partial(1, "inserted", 1))));
+      final TestEntity inserted = new TestEntity().where("id", Where.Operator.Equal, 1L).<TestEntity, TestEntity>stream(SelectBuilder.newInstance(config), (stream) -> stream.findFirst().orElseThrow());
+      assertAll(() -> assertNull(inserted.name), () -> assertEquals(1, inserted.grade));
+      assertEquals(1, IntStream.of(Bulk.update(config, List.of(new Partial(1, "updated", 2)))).sum());
+      final TestEntity updated = new TestEntity().where("id", Where.Operator.Equal, 1L).<TestEntity, TestEntity>stream(SelectBuilder.newInstance(config), (stream) -> stream.findFirst().orElseThrow());
+      // @formatter:off
+      assertAll(
+          () -> assertEquals("updated", updated.name)
+        , () -> assertEquals(1, updated.grade)
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.upsert(config, List.of(new Partial(1, "upserted", 3))))
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.insert(config, List.of(new Versioned())))
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.update(config, List.of(new Versioned())))
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.upsert(config, List.of(new Versioned())))
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.insert(config, List.of(new Generated())))
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.upsert(config, List.of(new Generated())))
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.insert(config, List.of(new TestEntity(2, "valid", 1), new Generated())))
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.update(config, List.of(new TestEntity(1, "valid", 1), new Generated())))
+        , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.update(config, List.of(new TestEntity(1, "valid", 1), new ConditionallyTest.Zero())))
+        , () -> assertEquals(List.of("updated"), names())
+        , () -> assertEquals(1L, new TestEntity().<TestEntity, Long>stream(SelectBuilder.newInstance(config), (stream) -> stream.count()))
+      );
+      // @formatter:on
+    });
+  }
+
+  @Test
+  void testInvalidateOnFailure() {
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(3);
+      ResultCache.shared().clear();
+      new TestEntity().orderBy("id").<TestEntity>selectCached(config);
+      assertEquals(1, ResultCache.shared().size());
+      assertThrows(RuntimeException.class, () -> Bulk.insert(config, entities(3, 4, "insert")));
+      assertEquals(0, ResultCache.shared().size());
+    });
+  }
+
+  @Test
+  void paintItGreen() {
+    final Config mysql = new Config() {
+      @Override
+      public DataSource getDataSource() {
+        return config.getDataSource();
+      }
+
+      @Override
+      public Dialect getDialect() {
+        return new MysqlDialect();
+      }
+    };
+    // @formatter:off
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> Bulk.insert(config, 0, entities(1, 1, "")))
+      , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.update(config, -1, entities(1, 1, "")))
+      , () -> assertThrows(IllegalArgumentException.class, () -> Bulk.upsert(config, List.of(new ConditionallyTest.Zero())))
+      , () -> assertThrows(UnsupportedOperationException.class, () -> Bulk.upsert(mysql, entities(1, 1, "")))
+      , () -> assertEquals(1000, Bulk.batchSize())
+    );
+    // @formatter:on
+  }
+}
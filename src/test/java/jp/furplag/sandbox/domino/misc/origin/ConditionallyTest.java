@@ -15,12 +15,19 @@
  */
 package jp.furplag.sandbox.domino.misc.origin;
 
+import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.seasar.doma.Column;
 import org.seasar.doma.Domain;
@@ -34,6 +41,10 @@ import org.seasar.doma.Transient;
 import org.seasar.doma.jdbc.builder.SelectBuilder;
 import org.seasar.doma.jdbc.entity.NamingType;
 import jp.furplag.sandbox.domino.misc.TestConfig;
+import jp.furplag.sandbox.domino.misc.fragment.Clauses;
+import jp.furplag.sandbox.domino.misc.fragment.Template;
+import jp.furplag.sandbox.domino.misc.fragment.Templates;
+import jp.furplag.sandbox.domino.misc.vars.Var;
 import jp.furplag.sandbox.domino.misc.vars.Where;
 import jp.furplag.sandbox.reflect.SavageReflection;
 import lombok.AllArgsConstructor;
@@ -178,4 +189,137 @@ class ConditionallyTest {
     assertEquals("select * from ONE  where  PRIMARYKEY in (?, ?, ?) and  A = ? and  rename_this_field = ? and  not C is NULL order by PRIMARYKEY", one.autoSelect(SelectBuilder.newInstance(config), true).getSql().toString());
     assertEquals("select * from ONE  where  PRIMARYKEY in (?, ?, ?) and  A = ? and  rename_this_field = ? and  B is NULL and  not C is NULL and  TOGGLE is NULL order by PRIMARYKEY", one.autoSelect(SelectBuilder.newInstance(config), false).getSql().toString());
   }
+
+  @Test
+  void testTemplates() {
+    final String expect = new Zero.One().where("primaryKey", Where.Operator.Equal, 1L).where("a", Where.Operator.Contains, "s").select(SelectBuilder.newInstance(config)).getSql().toString();
+    assertEquals(expect, new Zero.One().where("primaryKey", Where.Operator.Equal, 2L).where("a", Where.Operator.Contains, "t").select(SelectBuilder.newInstance(config)).getSql().toString());
+    assertSame(new Zero.One().where("primaryKey", Where.Operator.Equal, 1L).where("a", Where.Operator.Contains, "s").criteria().getTemplate(), new Zero.One().where("primaryKey", Where.Operator.Equal, 2L).where("a", Where.Operator.Contains, "t").criteria().getTemplate());
+    assertEquals(List.of(2L, "%t%"), new Zero.One().where("primaryKey", Where.Operator.Equal, 2L).where("a", Where.Operator.Contains, "t").select(SelectBuilder.newInstance(config)).getSql().getParameters().stream().map((t) -> t.getValue()).collect(Collectors.toList()));
+    assertNotSame(new Zero.One().where("primaryKey", Where.Operator.Includes, 1L, 2L).criteria().getTemplate(), new Zero.One().where("primaryKey", Where.Operator.Includes, 1L, 2L, 3L).criteria().getTemplate());
+
+    final Templates templates = new Templates(8);
+    final Template template = templates.get(Zero.One.class, "a", () -> Template.builder().sql("a").build());
+    assertSame(template, templates.get(Zero.One.class, "a", Template::empty));
+    assertNotSame(template, templates.get(Zero.class, "a", () -> Template.builder().sql("a").build()));
+    assertEquals(1L, templates.hits());
+    assertEquals(2L, templates.misses());
+
+    final Templates lru = new Templates(1);
+    lru.get("a", () -> Template.builder().sql("a").build());
+    lru.get("b", () -> Template.builder().sql("b").build());
+    assertEquals(1, lru.size());
+    assertEquals(1, lru.evictions());
+    assertEquals(0d, lru.hitRate());
+    lru.get("b", Template::empty);
+    assertEquals(1d / 3, lru.hitRate());
+  }
+
+  @Test
+  void testClauses() {
+    final Zero.One one = new Zero.One().where("primaryKey", Where.Operator.Equal, 1L).where("a", Where.Operator.Null);
+    assertEquals("select * from (select * from ONE where A = 'a') x  where  PRIMARYKEY = ? and  A is NULL", one.whereClause(SelectBuilder.newInstance(config).sql("select * from (select * from ONE where A = 'a') x ")).getSql().toString());
+    assertEquals("select * from ONE\twhere\tB is NULL and  PRIMARYKEY = ? and  A is NULL", one.whereClause(Clauses.of(SelectBuilder.newInstance(config).sql("select * from ONE\twhere\tB is NULL"), true)).getSelectBuilder().getSql().toString());
+    assertEquals("select * from ONE\twhere\tB is NULL and  PRIMARYKEY = ? and  A is NULL", one.whereClause(SelectBuilder.newInstance(config).sql("select * from ONE\twhere\tB is NULL")).getSql().toString());
+    assertEquals("select 'where' as W from ONE  where  PRIMARYKEY = ? and  A is NULL", one.whereClause(SelectBuilder.newInstance(config).sql("select 'where' as W from ONE ")).getSql().toString());
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(false, Clauses.detect(SelectBuilder.newInstance(config).sql("select * from ONE /* where */ ")).isWhereOpened())
+      , () -> assertEquals(false, Clauses.detect(SelectBuilder.newInstance(config).sql("select * from ONE -- where\n")).isWhereOpened())
+      , () -> assertEquals(false, Clauses.detect(SelectBuilder.newInstance(config).sql("select \"where\" from ONE ")).isWhereOpened())
+      , () -> assertEquals(false, Clauses.detect(SelectBuilder.newInstance(config).sql("select 'it''s where' from ONE ")).isWhereOpened())
+      , () -> assertEquals(false, Clauses.detect(SelectBuilder.newInstance(config).sql("select * from ONE /* where ")).isWhereOpened())
+      , () -> assertEquals(true, Clauses.detect(SelectBuilder.newInstance(config).sql("select * from ONE /* x */ where B is NULL")).isWhereOpened())
+      , () -> assertEquals(true, Clauses.detect(SelectBuilder.newInstance(config).sql("select * from ONE -- x\nwhere B is NULL")).isWhereOpened())
+      , () -> assertEquals(true, Clauses.detect(SelectBuilder.newInstance(config).sql("select '-- /*' from ONE where B is NULL")).isWhereOpened())
+    );
+    // @formatter:on
+    final Clauses clauses = one.select(Clauses.of(SelectBuilder.newInstance(config)), new String[] {});
+    assertEquals(true, clauses.isWhereOpened());
+    assertEquals(false, new Zero.One().select(Clauses.of(SelectBuilder.newInstance(config)), new String[] {}).isWhereOpened());
+  }
+
+  @Test
+  void testSeek() {
+    final Zero.One lastRow = new Zero.One();
+    lastRow.primaryKey = 10L;
+    lastRow.alternate = 3;
+    assertEquals("select * from ONE  order by PRIMARYKEY", new Zero.One().selectAfter(SelectBuilder.newInstance(config), (Sequentially) null).getSql().toString());
+    assertEquals("select * from ONE  where  PRIMARYKEY > ?  order by PRIMARYKEY", new Zero.One().selectAfter(SelectBuilder.newInstance(config), lastRow).getSql().toString());
+
+    final Zero.One one = new Zero.One().orderBy("alternate");
+    assertEquals(List.of(3, 10L), one.seekKeys(lastRow));
+    final SelectBuilder ascending = one.selectAfter(SelectBuilder.newInstance(config), lastRow);
+    assertEquals("select * from ONE  where  (rename_this_field, PRIMARYKEY) > (?, ?)  order by rename_this_field, PRIMARYKEY", ascending.getSql().toString());
+    assertEquals(List.of(3, 10L), ascending.getSql().getParameters().stream().map((t) -> t.getValue()).collect(Collectors.toList()));
+    assertEquals("select * from ONE  where  (rename_this_field, PRIMARYKEY) < (?, ?)  order by rename_this_field desc, PRIMARYKEY desc", new Zero.One().orderBy("alternate", true).selectAfter(SelectBuilder.newInstance(config), lastRow).getSql().toString());
+
+    final Zero.One mixed = new Zero.One().where("a", Where.Operator.Equal, "s");
+    mixed.orderBy("alternate", true);
+    mixed.orderBy("primaryKey");
+    final SelectBuilder expanded = mixed.selectAfter(SelectBuilder.newInstance(config), lastRow);
+    assertEquals("select * from ONE  where  A = ? and  (rename_this_field < ? or (rename_this_field = ? and (PRIMARYKEY > ?)))  order by rename_this_field desc, PRIMARYKEY", expanded.getSql().toString());
+    assertEquals(List.of("s", 3, 3, 10L), expanded.getSql().getParameters().stream().map((t) -> t.getValue()).collect(Collectors.toList()));
+
+    assertThrows(IllegalArgumentException.class, () -> one.selectAfter(SelectBuilder.newInstance(config), List.of(1)));
+    assertThrows(IllegalArgumentException.class, () -> one.selectAfter(SelectBuilder.newInstance(config), Arrays.asList(1, null)));
+  }
+
+  @Test
+  void testInStrategies() {
+    final Zero.One one = new Zero.One();
+    final java.lang.reflect.Field primaryKey = one.inspector().getField("primaryKey");
+    final Long[] values = { 1L, 2L, 3L, 4L, 5L };
+    assertEquals("select * from ONE  where  PRIMARYKEY in (?, ?, ?, ?, ?)", new Zero.One().where(Where.of(Var.varOf(one, primaryKey, values), Where.Operator.Includes, Where.Strategy.Exact)).select(SelectBuilder.newInstance(config)).getSql().toString());
+    final SelectBuilder padded = new Zero.One().where(Where.of(Var.varOf(one, primaryKey, values), Where.Operator.Includes, Where.Strategy.Padded)).select(SelectBuilder.newInstance(config));
+    assertEquals("select * from ONE  where  PRIMARYKEY in (?, ?, ?, ?, ?, ?, ?, ?)", padded.getSql().toString());
+    assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 5L, 5L, 5L), padded.getSql().getParameters().stream().map((t) -> t.getValue()).collect(Collectors.toList()));
+    assertEquals(8, Where.of(Var.varOf(one, primaryKey, 1L, 2L, 3L, 4L, 5L, 6L, 7L), Where.Operator.Includes, Where.Strategy.Padded).arity());
+    assertEquals(1, Where.of(Var.varOf(one, primaryKey, 1L), Where.Operator.Includes, Where.Strategy.Padded).arity());
+    assertEquals(Where.of(Var.varOf(one, primaryKey, 1L, 2L, 3L), Where.Operator.Includes, Where.Strategy.Padded).getShape(), Where.of(Var.varOf(one, primaryKey, 4L, 5L, 6L, 7L), Where.Operator.Includes, Where.Strategy.Padded).getShape());
+
+    final String chunkSize = System.getProperty(Where.Strategy.chunkSizeProperty);
+    try {
+      System.setProperty(Where.Strategy.chunkSizeProperty, "2");
+      final SelectBuilder chunked = new Zero.One().where(Where.of(Var.varOf(one, primaryKey, values), Where.Operator.Includes, Where.Strategy.Chunked)).select(SelectBuilder.newInstance(config));
+      assertEquals("select * from ONE  where  (PRIMARYKEY in (?, ?) or PRIMARYKEY in (?, ?) or PRIMARYKEY in (?))", chunked.getSql().toString());
+      assertEquals(List.of(1L, 2L, 3L, 4L, 5L), chunked.getSql().getParameters().stream().map((t) -> t.getValue()).collect(Collectors.toList()));
+      assertEquals("select * from ONE  where  not (PRIMARYKEY in (?, ?) or PRIMARYKEY in (?, ?) or PRIMARYKEY in (?, ?) or PRIMARYKEY in (?, ?))", new Zero.One().where(Where.of(Var.varOf(one, primaryKey, values), Where.Operator.Excludes, Where.Strategy.Padded)).select(SelectBuilder.newInstance(config)).getSql().toString());
+      assertEquals("select * from ONE  where  PRIMARYKEY in (?, ?)", new Zero.One().where(Where.of(Var.varOf(one, primaryKey, 1L, 2L), Where.Operator.Includes, Where.Strategy.Chunked)).select(SelectBuilder.newInstance(config)).getSql().toString());
+    } finally {
+      if (chunkSize == null) {
+        System.clearProperty(Where.Strategy.chunkSizeProperty);
+      } else {
+        System.setProperty(Where.Strategy.chunkSizeProperty, chunkSize);
+      }
+    }
+  }
+
+  @Test
+  void testCriteria() {
+    final Zero.One one = new Zero.One().where("primaryKey", Where.Operator.Equal, 1L);
+    one.where("a", Where.Operator.Contains, "s");
+    final Criteria<Zero.One> criteria = one.criteria();
+    one.where("primaryKey", Where.Operator.Equal, 9L);
+    one.orderBy("alternate");
+    final String expect = "select * from ONE  where  PRIMARYKEY = ? and  A like ?";
+    assertEquals(expect, criteria.select(SelectBuilder.newInstance(config)).getSql().toString());
+    assertEquals(List.of(1L, "%s%"), criteria.getValues());
+    assertEquals(expect, criteria.with("primaryKey", 2L).select(SelectBuilder.newInstance(config)).getSql().toString());
+    assertEquals(List.of(2L, "%s%"), criteria.with("primaryKey", 2L).getValues());
+    assertEquals(List.of(1L, "%t%"), criteria.with("a", "t").getValues());
+    assertEquals(List.of(1L, "%s%"), criteria.getValues());
+    assertEquals(Zero.One.class, criteria.getEntityClass());
+    assertThrows(IllegalArgumentException.class, () -> criteria.with("alternate", 1));
+    assertThrows(IllegalArgumentException.class, () -> criteria.with("none", 1));
+
+    final Criteria<Zero.One> anyOf = new Zero.One().where("primaryKey", Where.Operator.Includes, 1L, 2L).where("alternate", true, 1, 10).criteria();
+    assertEquals(anyOf.with("primaryKey", 3L, 4L, 5L).getTemplate(), new Zero.One().where("primaryKey", Where.Operator.Includes, 7L, 8L, 9L).where("alternate", true, 3, 30).criteria().getTemplate());
+    assertEquals(List.of(List.of(3L, 4L, 5L), 2, 20), anyOf.with("primaryKey", 3L, 4L, 5L).with("alternate", 2, 20).getValues());
+
+    // @formatter:off
+    assertEquals(true, java.util.stream.LongStream.rangeClosed(1, 200).parallel()
+      .allMatch((i) -> List.of(i, "%s%").equals(criteria.with("primaryKey", i).select(SelectBuilder.newInstance(config)).getSql().getParameters().stream().map((t) -> t.getValue()).collect(Collectors.toList()))));
+    // @formatter:on
+  }
 }
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.dialect.H2Dialect;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.cache.CancellableDataSource;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+class PublisherTest {
+
+  private static final Dialect dialect = new H2Dialect();
+
+  private static Config config(final String url) {
+    final JdbcDataSource _dataSource = new JdbcDataSource();
+    _dataSource.setURL(url);
+    _dataSource.setUser("domaf");
+    _dataSource.setPassword("domaf");
+    final DataSource dataSource = new CancellableDataSource(_dataSource);
+
+    return new Config() {
+
+      @Override
+      public DataSource getDataSource() {
+        return dataSource;
+      }
+
+      @Override
+      public Dialect getDialect() {
+        return dialect;
+      }
+    };
+  }
+
+  private static final Config config = config("jdbc:h2:./.data/publisher;mode=PostgreSQL");
+
+  private static class Recorder implements Flow.Subscriber<TestEntity> {
+
+    final List<Long> ids = Collections.synchronizedList(new ArrayList<>());
+
+    final Semaphore received = new Semaphore(0);
+
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    final long initial;
+
+    Flow.Subscription subscription;
+
+    Recorder(final long initial) {
+      this.initial = initial;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(initial);
+    }
+
+    @Override
+    public void onNext(TestEntity item) {
+      ids.add(item.id);
+      received.release();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      done.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      done.complete(null);
+    }
+
+    boolean await(final int rows) throws InterruptedException {
+      return received.tryAcquire(rows, 10, TimeUnit.SECONDS);
+    }
+  }
+
+  @BeforeAll
+  static void prepare() throws SQLException {
+    try (Connection connection = config.getDataSource().getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("drop table if exists test_entity");
+      statement.execute("create table test_entity (id bigint primary key, name varchar(32), grade int)");
+    }
+    Bulk.insert(config, LongStream.rangeClosed(1, 30).mapToObj((i) -> new TestEntity(i, "name" + i, (int) (i % 3))).collect(Collectors.toList()));
+  }
+
+  @Test
+  void test() throws Exception {
+    final Recorder all = new Recorder(Long.MAX_VALUE);
+    Publisher.<TestEntity>of(config, new TestEntity().orderBy("id"), 4).subscribe(all);
+    all.done.get(10, TimeUnit.SECONDS);
+
+    final Recorder exact = new Recorder(10);
+    Publisher.<TestEntity>of(config, new TestEntity().where("grade", Where.Operator.Equal, 1).orderBy("id")).subscribe(exact);
+    exact.done.get(10, TimeUnit.SECONDS);
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(LongStream.rangeClosed(1, 30).boxed().collect(Collectors.toList()), all.ids)
+      , () -> assertEquals(LongStream.rangeClosed(1, 30).filter((i) -> i % 3 == 1).boxed().collect(Collectors.toList()), exact.ids)
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void testBackpressure() throws Exception {
+    final Recorder recorder = new Recorder(3);
+    Publisher.<TestEntity>of(config, new TestEntity().orderBy("id"), 2).subscribe(recorder);
+    assertTrue(recorder.await(3));
+    Thread.sleep(100);
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(List.of(1L, 2L, 3L), recorder.ids)
+      , () -> assertFalse(recorder.done.isDone())
+    );
+    // @formatter:on
+    recorder.subscription.request(2);
+    assertTrue(recorder.await(2));
+    recorder.subscription.cancel();
+    recorder.subscription.request(10);
+    Thread.sleep(100);
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(List.of(1L, 2L, 3L, 4L, 5L), recorder.ids)
+      , () -> assertFalse(recorder.done.isDone())
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void paintItGreen() throws Exception {
+    final Recorder illegal = new Recorder(0);
+    Publisher.of(config, new TestEntity()).subscribe(illegal);
+    final Recorder broken = new Recorder(1);
+    Publisher.of(config("jdbc:h2:./.data/publisher-nope;IFEXISTS=TRUE"), new TestEntity()).subscribe(broken);
+    final Recorder rejected = new Recorder(1);
+    Publisher.of(config, new TestEntity(), 1, (runnable) -> {
+      throw new java.util.concurrent.RejectedExecutionException();
+    }).subscribe(rejected);
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(IllegalArgumentException.class, assertThrows(ExecutionException.class, () -> illegal.done.get(10, TimeUnit.SECONDS)).getCause().getClass())
+      , () -> assertThrows(ExecutionException.class, () -> broken.done.get(10, TimeUnit.SECONDS))
+      , () -> assertThrows(ExecutionException.class, () -> rejected.done.get(10, TimeUnit.SECONDS))
+      , () -> assertTrue(illegal.ids.isEmpty())
+      , () -> assertThrows(IllegalArgumentException.class, () -> Publisher.of(config, new TestEntity(), 0))
+      , () -> assertThrows(NullPointerException.class, () -> Publisher.of(config, new TestEntity()).subscribe(null))
+      , () -> assertEquals(256, Publisher.prefetch())
+    );
+    // @formatter:on
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.origin;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import jp.furplag.sandbox.domino.misc.TestConfig;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+class StreamingTest {
+
+  public static final TestConfig config = TestConfig.singleton();
+
+  @Test
+  void test() {
+    config.getTransactionManager().required(() -> {
+      TestEntity.prepare(100);
+      // @formatter:off
+      assertAll(
+          () -> assertEquals(100L, new TestEntity().<TestEntity, Long>stream(SelectBuilder.newInstance(config), 7, (stream) -> stream.count()))
+        , () -> assertEquals(90L, new TestEntity().where("id", Where.Operator.GreaterThan, 10L).<TestEntity, Long>stream(SelectBuilder.newInstance(config), (stream) -> stream.count()))
+        , () -> assertEquals(List.of(1L, 4L, 7L), new TestEntity().where("grade", Where.Operator.Equal, 1).orderBy("id").<TestEntity, List<Long>>stream(SelectBuilder.newInstance(config), 2, (stream) -> stream.limit(3).map((t) -> t.id).collect(Collectors.toList())))
+        , () -> assertThrows(IllegalArgumentException.class, () -> new TestEntity().stream(SelectBuilder.newInstance(config), 0, (stream) -> stream.count()))
+      );
+      // @formatter:on
+      final List<String> names = new ArrayList<>();
+      new TestEntity().where("id", Where.Operator.LessThanEqual, 3L).<TestEntity>forEach(SelectBuilder.newInstance(config), 1, (t) -> names.add(t.name));
+      assertEquals(List.of("name1", "name2", "name3"), names);
+    });
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import org.seasar.doma.jdbc.dialect.H2Dialect;
+import org.seasar.doma.jdbc.tx.LocalTransactionDataSource;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.origin.Bulk;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+
+class RoutingTest {
+
+  private static final List<String> names = List.of("primary", "replica1", "replica2");
+
+  private static String url(final String name) {
+    return String.format("jdbc:h2:./.data/routing-%s;mode=PostgreSQL", name);
+  }
+
+  private static DataSource dataSource(final String name) {
+    final JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL(url(name));
+    dataSource.setUser("domaf");
+    dataSource.setPassword("domaf");
+
+    return dataSource;
+  }
+
+  @BeforeAll
+  static void prepare() throws SQLException {
+    for (String name : names) {
+      try (Connection connection = dataSource(name).getConnection(); Statement statement = connection.createStatement()) {
+        statement.execute("drop table if exists test_entity");
+        statement.execute("create table test_entity (id bigint primary key, name varchar(32), grade int)");
+        statement.execute(String.format("insert into test_entity (id, name, grade) values (1, '%s', 0)", name));
+      }
+    }
+  }
+
+  private static String read(final RoutingConfig config) {
+    return new TestEntity().where("id", Where.Operator.Equal, 1L).<List<TestEntity>>execute(SelectBuilder.newInstance(config), (query) -> query.getEntityResultList(TestEntity.class)).get(0).name;
+  }
+
+  @Test
+  void test() {
+    final RoutingConfig config = new RoutingConfig(new H2Dialect(), new LocalTransactionDataSource(url("primary"), "domaf", "domaf"), List.of(dataSource("replica1"), dataSource("replica2")), RoutingDataSource.Balancer.RoundRobin);
+    final Set<String> reads = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      reads.add(read(config));
+    }
+    assertEquals(Set.of("replica1", "replica2"), reads);
+    config.getTransactionManager().required(() -> {
+      // @formatter:off
+      assertAll(
+          () -> assertEquals("primary", read(config))
+        , () -> assertEquals(1, Bulk.update(config, List.of(new TestEntity(1, "written", 0))).length)
+        , () -> assertEquals("written", read(config))
+        , () -> assertFalse(RoutingDataSource.isReading())
+      );
+      // @formatter:on
+      config.getTransactionManager().setRollbackOnly();
+    });
+    assertTrue(read(config).startsWith("replica"));
+  }
+
+  @Test
+  void testLeastOutstanding() throws SQLException {
+    final RoutingDataSource dataSource = new RoutingDataSource(dataSource("primary"), List.of(dataSource("replica1"), dataSource("replica2")), RoutingDataSource.Balancer.LeastOutstanding, null);
+    try (Connection held = RoutingDataSource.read(() -> connect(dataSource))) {
+      final String holding = nameOf(held);
+      for (int i = 0; i < 3; i++) {
+        try (Connection connection = RoutingDataSource.read(() -> connect(dataSource))) {
+          assertNotEquals(holding, nameOf(connection));
+        }
+      }
+    }
+    try (Connection connection = dataSource.getConnection()) {
+      assertEquals("primary", nameOf(connection));
+    }
+  }
+
+  @Test
+  void paintItGreen() throws SQLException {
+    final JdbcDataSource broken = new JdbcDataSource();
+    broken.setURL("jdbc:h2:./.data/routing-nope;IFEXISTS=TRUE");
+    final RoutingDataSource dataSource = new RoutingDataSource(dataSource("primary"), List.of(broken), null, null);
+    try (Connection connection = RoutingDataSource.read(() -> connect(dataSource))) {
+      assertEquals("primary", nameOf(connection));
+    }
+    assertEquals(RoutingDataSource.Balancer.RoundRobin, dataSource.getBalancer());
+  }
+
+  private static String nameOf(final Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("select name from test_entity where id = 1")) {
+      return resultSet.next() ? resultSet.getString(1) : null;
+    }
+  }
+
+  private static Connection connect(final DataSource dataSource) {
+    try {
+      return dataSource.getConnection();
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2019+ furplag (https://github.com/furplag)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.furplag.sandbox.domino.misc.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.seasar.doma.Domain;
+import org.seasar.doma.Entity;
+import org.seasar.doma.Id;
+import org.seasar.doma.Transient;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.dialect.H2Dialect;
+import org.seasar.doma.jdbc.dialect.PostgresDialect;
+import jp.furplag.sandbox.domino.misc.TestEntity;
+import jp.furplag.sandbox.domino.misc.origin.Bulk;
+import jp.furplag.sandbox.domino.misc.origin.Conditionally;
+import jp.furplag.sandbox.domino.misc.origin.Sequentially;
+import jp.furplag.sandbox.domino.misc.vars.Where;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+class ShardsTest {
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @Domain(valueType = String.class)
+  public static class Rank {
+    public String value;
+  }
+
+  @Entity
+  public static class Ranked implements Conditionally {
+
+    @Transient
+    @Getter
+    Map<String, Where<?>> wheres = new ConcurrentHashMap<>();
+
+    @Transient
+    @Getter
+    Queue<Sequentially.OrderBy> order = new ConcurrentLinkedQueue<>();
+
+    @Id
+    public long id;
+
+    public Rank rank;
+
+    public Ranked() {}
+
+    public Ranked(long id, String rank) {
+      this.id = id;
+      this.rank = new Rank(rank);
+    }
+  }
+
+  private static final Dialect dialect = new H2Dialect();
+
+  private static final List<TestEntity> entities = LongStream.rangeClosed(1, 30).mapToObj((i) -> new TestEntity(i, "name" + i, (int) (i % 3))).collect(Collectors.toList());
+
+  private static Shards shards;
+
+  private static DataSource dataSource(final int shard) {
+    final JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL(String.format("jdbc:h2:./.data/shard-%d;mode=PostgreSQL", shard));
+    dataSource.setUser("domaf");
+    dataSource.setPassword("domaf");
+
+    return dataSource;
+  }
+
+  private static Config config(final DataSource dataSource) {
+    return new Config() {
+
+      @Override
+      public DataSource getDataSource() {
+        return dataSource;
+      }
+
+      @Override
+      public Dialect getDialect() {
+        return dialect;
+      }
+    };
+  }
+
+  @BeforeAll
+  static void prepare() throws SQLException {
+    final List<Config> configs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      final DataSource dataSource = dataSource(i);
+      try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+        statement.execute("drop table if exists test_entity");
+        statement.execute("create table test_entity (id bigint primary key, name varchar(32), grade int)");
+      }
+      configs.add(config(dataSource));
+    }
+    shards = Shards.of(configs);
+    shards.partition(entities).forEach(Bulk::insert);
+  }
+
+  private static List<Long> idsOf(final List<TestEntity> entities) {
+    return entities.stream().map((t) -> t.id).collect(Collectors.toList());
+  }
+
+  @Test
+  void test() {
+    final Map<Config, List<TestEntity>> partitions = shards.partition(entities);
+    final TestEntity seven = entities.get(6);
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(3, partitions.size())
+      , () -> assertEquals(30, partitions.values().stream().mapToInt(List::size).sum())
+      , () -> assertTrue(partitions.get(shards.configOf(seven)).contains(seven))
+      , () -> assertEquals(shards.shardOf(seven), shards.routeOf(new TestEntity().where("id", Where.Operator.Equal, 7L)).getAsInt())
+      , () -> assertEquals(shards.shardOf(List.of(7L)), shards.shardOf(List.of(7)))
+      , () -> assertFalse(shards.routeOf(new TestEntity().where("id", Where.Operator.GreaterThan, 7L)).isPresent())
+      , () -> assertFalse(shards.routeOf(new TestEntity().where("grade", Where.Operator.Equal, 1)).isPresent())
+      , () -> assertEquals(List.of("name7"), shards.<TestEntity>select(new TestEntity().where("id", Where.Operator.Equal, 7L)).stream().map((t) -> t.name).collect(Collectors.toList()))
+      , () -> assertEquals(List.of(1L, 2L, 3L, 4L, 5L), idsOf(shards.<TestEntity>select(new TestEntity().orderBy("id"), 5)))
+      , () -> assertEquals(List.of(30L, 29L, 28L), idsOf(shards.<TestEntity>select(new TestEntity().orderBy("id", true), 3)))
+      , () -> assertEquals(LongStream.rangeClosed(1, 30).filter((i) -> i % 3 == 1).boxed().collect(Collectors.toList()), idsOf(shards.<TestEntity>select(new TestEntity().where("grade", Where.Operator.Equal, 1).orderBy("id"))))
+      , () -> assertEquals(idsOf(entities.stream().sorted(Comparator.<TestEntity>comparingInt((t) -> t.grade).reversed().thenComparingLong((t) -> t.id)).limit(12).collect(Collectors.toList())), idsOf(shards.<TestEntity>select(new TestEntity().orderBy("grade", true).orderBy("id"), 12)))
+      , () -> assertEquals(30, shards.<TestEntity>select(new TestEntity()).size())
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void testMerge() {
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(List.of(1, 2, 3), Shards.merge(List.of(List.of(1, 4), List.of(2, 3), List.of()), Comparator.<Integer>naturalOrder(), 3))
+      , () -> assertEquals(List.of(1, 2, 3, 4), Shards.merge(List.of(List.of(1, 4), List.of(2, 3), List.of()), Comparator.<Integer>naturalOrder(), Integer.MAX_VALUE))
+      , () -> assertEquals(List.of(), Shards.merge(List.of(), Comparator.<Integer>naturalOrder(), 3))
+      , () -> assertEquals(IntStream.range(0, 100).boxed().collect(Collectors.toList()), Shards.merge(List.of(IntStream.range(0, 100).filter((i) -> i % 2 == 0).boxed().collect(Collectors.toList()), IntStream.range(0, 100).filter((i) -> i % 2 == 1).boxed().collect(Collectors.toList())), Comparator.<Integer>naturalOrder(), 100))
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void testComparator() {
+    final List<Ranked> ranked = List.of(new Ranked(1, "b"), new Ranked(2, null), new Ranked(3, "a"));
+    // @formatter:off
+    assertAll(
+        () -> assertEquals(List.of(2L, 3L, 1L), ranked.stream().sorted(Shards.comparatorOf(new Ranked().orderBy("rank"), false)).map((t) -> t.id).collect(Collectors.toList()))
+      , () -> assertEquals(List.of(3L, 1L, 2L), ranked.stream().sorted(Shards.comparatorOf(new Ranked().orderBy("rank"), true)).map((t) -> t.id).collect(Collectors.toList()))
+      , () -> assertEquals(List.of(2L, 1L, 3L), ranked.stream().sorted(Shards.comparatorOf(new Ranked().orderBy("rank", true), true)).map((t) -> t.id).collect(Collectors.toList()))
+      , () -> assertFalse(Shards.nullsHighest(shards.getConfigs().get(0)))
+      , () -> assertEquals(shards.shardOf(List.of(new byte[] { 1, 2, 3 })), shards.shardOf(List.of(new byte[] { 1, 2, 3 })))
+    );
+    // @formatter:on
+  }
+
+  @Test
+  void paintItGreen() {
+    // @formatter:off
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> Shards.of(List.of()))
+      , () -> assertThrows(NullPointerException.class, () -> Shards.of(null))
+      , () -> assertThrows(IllegalArgumentException.class, () -> Shards.of(List.of(shards.getConfigs().get(0), new Config() {
+
+          @Override
+          public DataSource getDataSource() {
+            return dataSource(0);
+          }
+
+          @Override
+          public Dialect getDialect() {
+            return new PostgresDialect();
+          }
+        })))
+      , () -> assertThrows(IllegalArgumentException.class, () -> shards.<TestEntity>select(new TestEntity(), 0))
+      , () -> assertThrows(IllegalArgumentException.class, () -> Shards.comparatorOf(new TestEntity().orderByExclusive("notExists", false), false))
+      , () -> assertThrows(IllegalArgumentException.class, () -> shards.<TestEntity>select(new TestEntity().orderByExclusive("notExists", false)))
+      , () -> assertEquals(3, shards.getConfigs().size())
+    );
+    // @formatter:on
+  }
+}
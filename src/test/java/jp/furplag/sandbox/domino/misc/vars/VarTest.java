@@ -16,10 +16,15 @@
 package jp.furplag.sandbox.domino.misc.vars;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.seasar.doma.Column;
 import org.seasar.doma.Domain;
@@ -30,6 +35,7 @@ import org.seasar.doma.GenerationType;
 import org.seasar.doma.Id;
 import org.seasar.doma.Table;
 import org.seasar.doma.Transient;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
 import org.seasar.doma.jdbc.entity.NamingType;
 import jp.furplag.sandbox.domino.misc.TestConfig;
 import jp.furplag.sandbox.domino.misc.origin.Conditionally;
@@ -148,6 +154,46 @@ class VarTest {
     assertEquals(Var.varOf(new Zero.One(), Reflections.getField(Zero.One.class, "toggle")).getFieldName(), Var.varOf(new Zero.One(), Reflections.getField(Zero.One.class, "toggle")).getKey());
   }
 
+  @Test
+  void testAccessor() {
+    final Zero.One one = new Zero.One();
+    assertEquals("on", Var.varOf(one, Reflections.getField(Zero.One.class, "toggle")).getValue());
+    assertEquals("AAA", Var.varOf(one, Reflections.getField(Abc.class, "a")).getValue());
+    assertEquals("DDD", Var.varOf(new Zero.One.Two.Three.Four.Five(), Reflections.getField(Abc.class, "a")).getValue());
+    assertSame(one.inspector().getAccessor(Reflections.getField(Abc.class, "a")), one.inspector().getAccessor(Reflections.getField(Abc.class, "a")));
+    assertThrows(IllegalArgumentException.class, () -> one.inspector().getAccessor(Reflections.getField(Zero.One.class, "toggle")).getValue(new Object()));
+
+    one.toggle = null;
+    one.abc = null;
+    assertEquals(null, Var.varOf(one, Reflections.getField(Zero.One.class, "toggle")).getValue());
+    assertEquals(null, Var.varOf(one, Reflections.getField(Abc.class, "a")).getValue());
+  }
+
+  @Test
+  void testPrimitives() {
+    final Zero.One one = new Zero.One();
+    final long[] longs = { 1L, 2L, 3L };
+    final Var<Long> longsOf = Var.longsOf(one, Reflections.getField(Zero.One.class, "primaryKey"), longs);
+    longs[0] = 100L;
+    assertEquals(List.of(1L, 2L, 3L), ((Var.AnyOf<Long>) longsOf).getValues());
+    assertEquals(3L, ((Var.Longs) longsOf).getLong(2));
+    assertEquals(long.class, longsOf.getValueType());
+    assertEquals(List.of(4, 5), ((Var.AnyOf<Integer>) Var.intsOf(one, Reflections.getField(Zero.One.class, "alternate"), 4, 5)).getValues());
+    assertEquals(5, ((Var.Ints) Var.intsOf(one, Reflections.getField(Zero.One.class, "alternate"), 4, 5)).getInt(1));
+    assertFalse(Var.longsOf(one, Reflections.getField(Zero.One.class, "primaryKey")) instanceof Var.AnyOf);
+    assertFalse(Var.longsOf(one, Reflections.getField(Zero.One.class, "primaryKey"), (long[]) null) instanceof Var.AnyOf);
+    assertFalse(Var.intsOf(one, Reflections.getField(Zero.One.class, "alternate"), new int[0]) instanceof Var.AnyOf);
+    assertEquals(new Zero.One().where("primaryKey", Where.Operator.Includes, new Long[0]).select(SelectBuilder.newInstance(TestConfig.singleton())).getSql().toString(), new Zero.One().whereAnyOf("primaryKey", Where.Operator.Includes, new long[0]).select(SelectBuilder.newInstance(TestConfig.singleton())).getSql().toString());
+    assertFalse(new Zero.One().whereAnyOf("alternate", Where.Operator.Excludes, new int[0]).select(SelectBuilder.newInstance(TestConfig.singleton())).getSql().toString().contains("()"));
+
+    final SelectBuilder selectBuilder = new Zero.One().whereAnyOf("primaryKey", Where.Operator.Includes, 1L, 2L, 3L).select(SelectBuilder.newInstance(TestConfig.singleton()));
+    assertEquals("select * from ONE  where  PRIMARYKEY in (?, ?, ?)", selectBuilder.getSql().toString());
+    assertEquals(List.of(1L, 2L, 3L), selectBuilder.getSql().getParameters().stream().map((t) -> t.getValue()).collect(Collectors.toList()));
+    assertEquals(Where.of(Var.varOf(one, Reflections.getField(Zero.One.class, "primaryKey"), 1L, 2L, 3L), Where.Operator.Includes).getShape(), Where.of(Var.longsOf(one, Reflections.getField(Zero.One.class, "primaryKey"), 4L, 5L, 6L), Where.Operator.Includes).getShape());
+    assertEquals(List.of(List.of(1L, 2L, 3L, 3L)), Where.of(Var.longsOf(one, Reflections.getField(Zero.One.class, "primaryKey"), 1L, 2L, 3L), Where.Operator.Includes, Where.Strategy.Padded).values());
+    assertEquals("select * from ONE  where  not rename_this_field in (?, ?)", new Zero.One().whereAnyOf("alternate", Where.Operator.Excludes, 1, 2).select(SelectBuilder.newInstance(TestConfig.singleton())).getSql().toString());
+  }
+
   @Test
   void testEntity() {}
   //